@@ -0,0 +1,104 @@
+package com.crime.crimeproject;
+
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+// Генератор синтетических данных для бенчмарков: детерминированный (фиксированный seed),
+// чтобы результаты разных прогонов были сравнимы
+public final class SyntheticData {
+
+    private static final String[] CRIMES = {
+            "Кража велосипеда", "Угон автомобиля", "Мошенничество с картой", "Вандализм в подъезде",
+            "Хулиганство", "Кража из магазина", "Взлом квартиры", "Поджог гаража"
+    };
+
+    private SyntheticData() {
+    }
+
+    public static List<Profile> profiles(int count, long seed) {
+        Random random = new Random(seed);
+        List<Profile> profiles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            profiles.add(Profile.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .login("user" + i)
+                    .password("password" + i)
+                    .email("user" + i + "@crime.test")
+                    .build());
+        }
+        return profiles;
+    }
+
+    public static List<CrimeJournal> journals(int count, List<UUID> profileIds, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        List<CrimeJournal> journals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            journals.add(CrimeJournal.builder()
+                    .id(new UUID(random.nextLong(), random.nextLong()))
+                    .description(CRIMES[random.nextInt(CRIMES.length)] + " #" + i)
+                    .dateCrime(java.sql.Date.valueOf(today.minusDays(random.nextInt(20 * 365))))
+                    .isClosed(random.nextBoolean())
+                    .profileId(profileIds.get(random.nextInt(profileIds.size())))
+                    .build());
+        }
+        return journals;
+    }
+
+    // ResultSet с колонками crime_journal в порядке SELECT репозитория
+    public static SyntheticResultSet journalResultSet(List<CrimeJournal> journals) {
+        Object[][] rows = new Object[journals.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            CrimeJournal journal = journals.get(i);
+            rows[i] = new Object[]{journal.getId(), journal.getDescription(), journal.getDateCrime(), journal.getIsClosed(), journal.getProfileId()};
+        }
+        return resultSet(new String[]{"id", "description", "date_crime", "is_closed", "profile_id"}, rows);
+    }
+
+    // ResultSet с колонками profile в порядке SELECT репозитория
+    public static SyntheticResultSet profileResultSet(List<Profile> profiles) {
+        Object[][] rows = new Object[profiles.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            Profile profile = profiles.get(i);
+            rows[i] = new Object[]{profile.getId(), profile.getLogin(), profile.getPassword(), profile.getEmail()};
+        }
+        return resultSet(new String[]{"id", "login", "password", "email"}, rows);
+    }
+
+    // ResultSet в памяти: поддерживает только методы чтения, которые используют мапперы
+    public interface SyntheticResultSet extends ResultSet {
+        void moveTo(int row);
+    }
+
+    private static SyntheticResultSet resultSet(String[] labels, Object[][] rows) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            columns.put(labels[i], i);
+        }
+        int[] current = {0};
+        return (SyntheticResultSet) Proxy.newProxyInstance(SyntheticData.class.getClassLoader(),
+                new Class<?>[]{SyntheticResultSet.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("moveTo")) {
+                        current[0] = (Integer) args[0];
+                        return null;
+                    }
+                    if (args == null || args.length == 0) {
+                        throw new SQLException("Не поддерживается: " + method.getName());
+                    }
+                    int column = args[0] instanceof Integer index ? index - 1 : columns.get((String) args[0]);
+                    Object value = rows[current[0]][column];
+                    return switch (method.getName()) {
+                        case "getObject", "getString", "getDate" -> value;
+                        case "getBoolean" -> (Boolean) value;
+                        default -> throw new SQLException("Не поддерживается: " + method.getName());
+                    };
+                });
+    }
+
+}
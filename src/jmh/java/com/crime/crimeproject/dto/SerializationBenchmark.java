@@ -0,0 +1,72 @@
+package com.crime.crimeproject.dto;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Сериализация списка CrimeJournalDTO в JSON, Smile и CBOR так, как это делает контроллер
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SerializationBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper smileMapper;
+    private ObjectMapper cborMapper;
+    private List<CrimeJournalDTO> dtos;
+
+    @Setup
+    public void setUp() {
+        // Те же настройки, что Spring Boot применяет к ObjectMapper по умолчанию
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        // Как в BinaryFormatConfig: тот же построитель с другой фабрикой
+        smileMapper = Jackson2ObjectMapperBuilder.smile()
+                .factory(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build())
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        cborMapper = Jackson2ObjectMapperBuilder.cbor()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        List<Profile> profiles = SyntheticData.profiles(100, 42);
+        List<CrimeJournal> journals = SyntheticData.journals(rows, profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42);
+        dtos = journals.stream()
+                .map(it -> new CrimeJournalDTO(it.getId(), it.getDescription(), it.getDateCrime(), it.getIsClosed(), it.getProfileId()))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void serializeList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    @Benchmark
+    public void serializeListSmile() throws IOException {
+        smileMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    @Benchmark
+    public void serializeListCbor() throws IOException {
+        cborMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.crime.crimeproject.id;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость генерации ID: UUID v4 против UUID v7, в одном потоке и при конкуренции потоков за CAS
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    @Param({"random", "v7"})
+    public String strategy;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setUp() {
+        idGenerator = "v7".equals(strategy) ? new UuidV7Generator() : new RandomIdGenerator();
+    }
+
+    @Benchmark
+    public UUID nextId() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public UUID nextIdContended() {
+        return idGenerator.nextId();
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.crime.crimeproject.id;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Скорость вставки и размер индекса первичного ключа для UUID v4 и v7 на таблице той же структуры, что crime_journal.
+// Таблица предварительно заполняется до prefill строк (по умолчанию 10 млн — это занимает несколько минут),
+// размеры таблицы и индекса печатаются в конце прогона. Нужен PostgreSQL: -Dbench.db.url=...
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IdInsertBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final String INSERT_SQL = "INSERT INTO %s (id, description, date_crime, is_closed, profile_id) VALUES (?, ?, ?, ?, ?)";
+
+    @Param({"random", "v7"})
+    public String strategy;
+
+    @Param({"10000000"})
+    public int prefill;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private IdGenerator idGenerator;
+    private String table;
+    private final UUID profileId = UUID.randomUUID();
+    private final Date dateCrime = Date.valueOf(LocalDate.now());
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/crime_bench"));
+        config.setUsername(System.getProperty("bench.db.username", "postgres"));
+        config.setPassword(System.getProperty("bench.db.password", "postgres"));
+        // Драйвер объединяет батч в многострочные INSERT: измеряется работа индекса, а не сеть
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
+        dataSource = new HikariDataSource(config);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        idGenerator = "v7".equals(strategy) ? new UuidV7Generator() : new RandomIdGenerator();
+
+        table = "bench_ids_" + strategy;
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id uuid PRIMARY KEY, description varchar(100) NOT NULL, " +
+                             "date_crime date NOT NULL, is_closed boolean NOT NULL, profile_id uuid NOT NULL)");
+        for (int inserted = 0; inserted < prefill; inserted += BATCH) {
+            insertBatch();
+        }
+        jdbcTemplate.execute("CHECKPOINT");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Long rows = jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class);
+        String sizes = jdbcTemplate.queryForObject(
+                "SELECT 'table ' || pg_size_pretty(pg_relation_size(?::regclass)) || ', pkey ' || pg_size_pretty(pg_relation_size(?::regclass))",
+                String.class, table, table + "_pkey");
+        System.out.println();
+        System.out.println("# " + strategy + ": " + rows + " rows, " + sizes);
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] insertBatch() {
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            rows.add(new Object[]{idGenerator.nextId(), "Кража велосипеда", dateCrime, false, profileId});
+        }
+        return jdbcTemplate.batchUpdate(INSERT_SQL.formatted(table), rows);
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.crime.crimeproject.load;
+
+import com.crime.crimeproject.CrimeProjectApplication;
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import com.crime.crimeproject.repository.CrimeJournalChangeRepository;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.repository.ProfileRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Нагрузочное сравнение spring.threads.virtual.enabled=false/true: приложение целиком (Tomcat, HikariCP, PostgreSQL)
+// поднимается в этом же процессе поочередно в обоих режимах, клиенты — виртуальные потоки с java.net.http.HttpClient.
+// Сценарии:
+//   reads     — clients клиентов без пауз читают запись по ID (60%), первую страницу журнала (30%)
+//               и страницу записей профиля (10%);
+//   long-poll — то же плюс long-poll-clients клиентов долгого опроса GET /journal/changes?wait=30,
+//               каждый из которых все время ожидания держит поток запроса.
+// Запуск (нужна отдельная база, как для RepositoryBenchmark):
+//   mvn -Pjmh compile exec:java -Dexec.mainClass=com.crime.crimeproject.load.VirtualThreadsLoadTest
+//       -Dbench.db.url=jdbc:postgresql://localhost:5432/crime_bench -Dload.result=target/load-result.json
+// Параметры: -Dload.rows (100000), -Dload.clients (64), -Dload.long-poll-clients (300),
+//   -Dload.warmup (10 с), -Dload.duration (30 с). Результат последнего прогона — src/jmh/load-baseline.json
+public final class VirtualThreadsLoadTest {
+
+    private static final int PROFILES = 100;
+    private static final int SEED_CHUNK = 5000;
+    private static final int SAMPLE_IDS = 1024;
+
+    private final int rows = Integer.getInteger("load.rows", 100_000);
+    private final int clients = Integer.getInteger("load.clients", 64);
+    private final int longPollClients = Integer.getInteger("load.long-poll-clients", 300);
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("load.warmup", 10));
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("load.duration", 30));
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private UUID[] journalIds;
+    private UUID[] profileIds;
+
+    private VirtualThreadsLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        new VirtualThreadsLoadTest().run();
+    }
+
+    private void run() throws Exception {
+        List<Result> results = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = startApplication(virtual)) {
+                if (journalIds == null) {
+                    seed(context);
+                }
+                URI base = URI.create("http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort());
+                // Долгий опрос с конца ленты: изменений нет, каждый запрос ждет все 30 секунд
+                String since = context.getBean(CrimeJournalChangeRepository.class).findLatestPosition()
+                        .orElse(ChangeFeedCursor.START).encode();
+                results.add(measure(base, virtual, "reads", 0, since));
+                results.add(measure(base, virtual, "long-poll", longPollClients, since));
+            }
+        }
+
+        System.out.printf("%n%-10s %-10s %10s %10s %10s %10s %8s%n", "threads", "scenario", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (Result result : results) {
+            System.out.printf("%-10s %-10s %10.0f %10.1f %10.1f %10.1f %8d%n", result.threads(), result.scenario(),
+                    result.throughput(), result.p50(), result.p99(), result.max(), result.errors());
+        }
+        String resultFile = System.getProperty("load.result");
+        if (resultFile != null) {
+            Files.writeString(Path.of(resultFile), results.stream().map(Result::toJson)
+                    .collect(Collectors.joining(",\n", "[\n", "\n]\n")));
+        }
+    }
+
+    // Аргументами командной строки, а не SpringApplicationBuilder.properties: те лишь значения по умолчанию,
+    // и application.yml их перекрыл бы
+    private ConfigurableApplicationContext startApplication(boolean virtual) {
+        return new SpringApplicationBuilder(CrimeProjectApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.datasource.url=" + System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/crime_bench"),
+                "--spring.datasource.username=" + System.getProperty("bench.db.username", "postgres"),
+                "--spring.datasource.password=" + System.getProperty("bench.db.password", "postgres"),
+                // Один экземпляр: новые изменения будят долгий опрос уведомлением, периодическое перечитывание
+                // ленты не нужно — иначе сценарий long-poll мерил бы запросы ожидающих к БД, а не занятые ими потоки
+                "--crime.journal.changes.poll-interval=30s",
+                "--logging.level.root=warn");
+    }
+
+    // Заполняет базу, только если в ней меньше строк, чем требуется (как RepositoryBenchmark)
+    private void seed(ConfigurableApplicationContext context) {
+        NamedParameterJdbcTemplate template = context.getBean(NamedParameterJdbcTemplate.class);
+        ProfileRepository profileRepository = context.getBean(ProfileRepository.class);
+        CrimeJournalRepository crimeJournalRepository = context.getBean(CrimeJournalRepository.class);
+
+        Integer existing = template.queryForObject("SELECT count(*) FROM crime_journal", Map.of(), Integer.class);
+        if (existing == null || existing < rows) {
+            List<Profile> profiles = SyntheticData.profiles(PROFILES, 42);
+            Set<UUID> saved = profileRepository.findExistingIds(profiles.stream().map(Profile::getId).collect(Collectors.toSet()));
+            profiles.stream().filter(it -> !saved.contains(it.getId())).forEach(profileRepository::save);
+
+            List<CrimeJournal> journals = SyntheticData.journals(rows, profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42);
+            for (int from = 0; from < journals.size(); from += SEED_CHUNK) {
+                crimeJournalRepository.saveAll(journals.subList(from, Math.min(from + SEED_CHUNK, journals.size())));
+            }
+            template.getJdbcTemplate().execute("ANALYZE crime_journal");
+        }
+        journalIds = template.queryForList("SELECT id FROM crime_journal LIMIT " + SAMPLE_IDS, Map.of(), UUID.class)
+                .toArray(UUID[]::new);
+        profileIds = template.queryForList("SELECT id FROM profile", Map.of(), UUID.class).toArray(UUID[]::new);
+    }
+
+    // Разгон, затем замер: задержки и ошибки считаются только по коротким чтениям, начатым в окне замера
+    private Result measure(URI base, boolean virtual, String scenario, int longPollers, String since) throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long deadline = measureFrom + duration.toNanos();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong errors = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < longPollers; i++) {
+            threads.add(Thread.ofVirtual().start(() -> longPoll(base, since, deadline)));
+        }
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> latencies.add(read(base, measureFrom, deadline, errors))));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(virtual ? "virtual" : "platform", scenario, all.length / (double) duration.toSeconds(),
+                percentile(all, 0.50), percentile(all, 0.99), all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors.get());
+    }
+
+    private long[] read(URI base, long measureFrom, long deadline, AtomicLong errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start;
+        while ((start = System.nanoTime()) < deadline) {
+            int kind = random.nextInt(10);
+            String path = kind < 6 ? "/journal/" + journalIds[random.nextInt(journalIds.length)]
+                    : kind < 9 ? "/journal?limit=50"
+                    : "/journal/user/" + profileIds[random.nextInt(profileIds.length)] + "?limit=20";
+            boolean ok = send(base.resolve(path), Duration.ofSeconds(60));
+            if (start < measureFrom) {
+                continue;
+            }
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private void longPoll(URI base, String since, long deadline) {
+        while (System.nanoTime() < deadline) {
+            send(base.resolve("/journal/changes?limit=10&wait=30&since=" + since), Duration.ofSeconds(90));
+        }
+    }
+
+    private boolean send(URI uri, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+    }
+
+    private record Result(String threads, String scenario, double throughput, double p50, double p99, double max, long errors) {
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "    {\"threads\" : \"%s\", \"scenario\" : \"%s\", \"throughput\" : %.1f, \"p50Ms\" : %.2f, \"p99Ms\" : %.2f, \"maxMs\" : %.2f, \"errors\" : %d}",
+                    threads, scenario, throughput, p50, p99, max, errors);
+        }
+
+    }
+
+}
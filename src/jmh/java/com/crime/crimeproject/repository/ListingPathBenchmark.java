@@ -0,0 +1,85 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.SyntheticData.SyntheticResultSet;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Путь строк списка от ResultSet до JSON-ответа. Аллокации смотреть с -prof gc (gc.alloc.rate.norm — байт на 100k строк).
+// Построчная запись выгрузки на тех же данных — JsonRowWriterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ListingPathBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private SyntheticResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        List<Profile> profiles = SyntheticData.profiles(100, 42);
+        resultSet = SyntheticData.journalResultSet(SyntheticData.journals(rows,
+                profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42));
+    }
+
+    // Прежний путь: маппер по именам колонок -> CrimeJournal через builder -> CrimeJournalDTO (как CrimeJournalService.toDTO) -> JSON
+    @Benchmark
+    public void entityThenDto() throws SQLException, IOException {
+        List<CrimeJournal> journals = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            resultSet.moveTo(i);
+            journals.add(CrimeJournal.builder()
+                    .id(resultSet.getObject("id", UUID.class))
+                    .description(resultSet.getString("description"))
+                    .dateCrime(resultSet.getDate("date_crime"))
+                    .isClosed(resultSet.getBoolean("is_closed"))
+                    .profileId(resultSet.getObject("profile_id", UUID.class))
+                    .build());
+        }
+        List<CrimeJournalDTO> dtos = journals.stream()
+                .map(journal -> CrimeJournalDTO.builder()
+                        .id(journal.getId())
+                        .description(journal.getDescription())
+                        .dateCrime(journal.getDateCrime())
+                        .isClosed(journal.getIsClosed())
+                        .profile_id(journal.getProfileId())
+                        .build())
+                .collect(Collectors.toList());
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+    // Списочные запросы: маппер по номерам колонок сразу в CrimeJournalDTO -> JSON
+    @Benchmark
+    public void dtoMapper() throws SQLException, IOException {
+        List<CrimeJournalDTO> dtos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            resultSet.moveTo(i);
+            dtos.add(CrimeJournalRepository.CRIME_JOURNAL_DTO_ROW_MAPPER.mapRow(resultSet, i));
+        }
+        objectMapper.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+
+}
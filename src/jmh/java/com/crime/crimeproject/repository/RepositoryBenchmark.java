@@ -0,0 +1,134 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.cache.ProfileCache;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import com.crime.crimeproject.pagination.JournalCursor;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.SortDirection;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.integration.spring.SpringLiquibase;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Запросы репозиториев к PostgreSQL на синтетических данных. Нужна отдельная (пустая или уже
+// заполненная этим бенчмарком) база: -Dbench.db.url=jdbc:postgresql://localhost:5432/crime_bench
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int PROFILES = 100;
+    private static final int SEED_CHUNK = 5000;
+    private static final int SAMPLE_IDS = 1024;
+
+    @Param({"100000"})
+    public int rows;
+
+    private HikariDataSource dataSource;
+    private CrimeJournalRepository crimeJournalRepository;
+    private ProfileRepository profileRepository;
+    private UUID[] journalIds;
+    private UUID[] profileIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(System.getProperty("bench.db.url", "jdbc:postgresql://localhost:5432/crime_bench"));
+        config.setUsername(System.getProperty("bench.db.username", "postgres"));
+        config.setPassword(System.getProperty("bench.db.password", "postgres"));
+        dataSource = new HikariDataSource(config);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+
+        NamedParameterJdbcTemplate template = new NamedParameterJdbcTemplate(dataSource);
+        // Кэши нулевого размера: измеряются именно запросы к БД
+        CrimeJournalCache crimeJournalCache = new CrimeJournalCache(0, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        crimeJournalRepository = new CrimeJournalRepository(template, crimeJournalCache, 1000);
+        profileRepository = new ProfileRepository(template, new ProfileCache(0, Duration.ofMinutes(1)), crimeJournalCache);
+
+        seed(template);
+        journalIds = template.queryForList("SELECT id FROM crime_journal LIMIT " + SAMPLE_IDS, Map.of(), UUID.class)
+                .toArray(UUID[]::new);
+        profileIds = template.queryForList("SELECT id FROM profile", Map.of(), UUID.class).toArray(UUID[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    // Заполняет базу, только если в ней меньше строк, чем требуется
+    private void seed(NamedParameterJdbcTemplate template) {
+        Integer existing = template.queryForObject("SELECT count(*) FROM crime_journal", Map.of(), Integer.class);
+        if (existing != null && existing >= rows) {
+            return;
+        }
+
+        List<Profile> profiles = SyntheticData.profiles(PROFILES, 42);
+        Set<UUID> saved = profileRepository.findExistingIds(profiles.stream().map(Profile::getId).collect(Collectors.toSet()));
+        profiles.stream().filter(it -> !saved.contains(it.getId())).forEach(profileRepository::save);
+
+        List<CrimeJournal> journals = SyntheticData.journals(rows, profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42);
+        for (int from = 0; from < journals.size(); from += SEED_CHUNK) {
+            crimeJournalRepository.saveAll(journals.subList(from, Math.min(from + SEED_CHUNK, journals.size())));
+        }
+        template.getJdbcTemplate().execute("ANALYZE crime_journal");
+    }
+
+    private int nextIndex(int length) {
+        next = (next + 1) % length;
+        return next;
+    }
+
+    @Benchmark
+    public Optional<CrimeJournal> findById() {
+        return crimeJournalRepository.findById(journalIds[nextIndex(journalIds.length)]);
+    }
+
+    @Benchmark
+    public boolean profileExistsById() {
+        return profileRepository.existsById(profileIds[nextIndex(profileIds.length)]);
+    }
+
+    @Benchmark
+    public List<CrimeJournalDTO> findFirstPage() {
+        return crimeJournalRepository.findPage(CrimeJournalFilter.builder().build(), null, 51, SortDirection.DESC);
+    }
+
+    @Benchmark
+    public List<CrimeJournalDTO> findPageByProfile() {
+        CrimeJournalFilter filter = CrimeJournalFilter.builder().profileId(profileIds[nextIndex(profileIds.length)]).build();
+        return crimeJournalRepository.findPage(filter, null, 51, SortDirection.DESC);
+    }
+
+    @Benchmark
+    public List<CrimeJournalDTO> findNextPage() {
+        JournalCursor cursor = new JournalCursor(java.time.LocalDate.now().minusYears(5), new UUID(0, 0));
+        return crimeJournalRepository.findPage(CrimeJournalFilter.builder().build(), cursor, 51, SortDirection.DESC);
+    }
+
+    @Benchmark
+    public List<CrimeJournalDTO> searchByDescription() {
+        return crimeJournalRepository.findByDescription("велосипед", 50, 0);
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.SyntheticData.SyntheticResultSet;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Стоимость преобразования одной строки ResultSet в сущность или DTO мапперами репозиториев
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 1024; // степень двойки: индекс строки считается маской
+
+    private SyntheticResultSet journalResultSet;
+    private SyntheticResultSet profileResultSet;
+    private int row;
+
+    @Setup
+    public void setUp() {
+        List<Profile> profiles = SyntheticData.profiles(ROWS, 42);
+        journalResultSet = SyntheticData.journalResultSet(SyntheticData.journals(ROWS,
+                profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42));
+        profileResultSet = SyntheticData.profileResultSet(profiles);
+    }
+
+    @Benchmark
+    public CrimeJournal mapCrimeJournal() throws SQLException {
+        row = (row + 1) & (ROWS - 1);
+        journalResultSet.moveTo(row);
+        return CrimeJournalRepository.CRIME_JOURNAL_ROW_MAPPER.mapRow(journalResultSet, row);
+    }
+
+    @Benchmark
+    public CrimeJournalDTO mapCrimeJournalDTO() throws SQLException {
+        row = (row + 1) & (ROWS - 1);
+        journalResultSet.moveTo(row);
+        return CrimeJournalRepository.CRIME_JOURNAL_DTO_ROW_MAPPER.mapRow(journalResultSet, row);
+    }
+
+    @Benchmark
+    public Profile mapProfile() throws SQLException {
+        row = (row + 1) & (ROWS - 1);
+        profileResultSet.moveTo(row);
+        return ProfileRepository.PROFILE_ROW_MAPPER.mapRow(profileResultSet, row);
+    }
+
+}
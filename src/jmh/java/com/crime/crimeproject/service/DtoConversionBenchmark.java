@@ -0,0 +1,45 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.Profile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Стоимость копирования сущности журнала в DTO — поштучно и списком, как в сервисе
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoConversionBenchmark {
+
+    private static final int ROWS = 1024;
+
+    private List<CrimeJournal> journals;
+    private int row;
+
+    @Setup
+    public void setUp() {
+        List<Profile> profiles = SyntheticData.profiles(100, 42);
+        journals = SyntheticData.journals(ROWS, profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42);
+    }
+
+    @Benchmark
+    public CrimeJournalDTO toDTO() {
+        row = (row + 1) & (ROWS - 1);
+        return CrimeJournalService.toDTO(journals.get(row));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<CrimeJournalDTO> toDTOList() {
+        return journals.stream().map(CrimeJournalService::toDTO).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.SyntheticData;
+import com.crime.crimeproject.SyntheticData.SyntheticResultSet;
+import com.crime.crimeproject.entity.Profile;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Выгрузка: каждая строка ResultSet пишется в JsonGenerator сразу по мере чтения, объекты строк не создаются.
+// Те же данные и параметры, что у ListingPathBenchmark, — результаты сравнимы (-prof gc)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class JsonRowWriterBenchmark {
+
+    @Param({"100000"})
+    public int rows;
+
+    private ObjectMapper objectMapper;
+    private SyntheticResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        List<Profile> profiles = SyntheticData.profiles(100, 42);
+        resultSet = SyntheticData.journalResultSet(SyntheticData.journals(rows,
+                profiles.stream().map(Profile::getId).collect(Collectors.toList()), 42));
+    }
+
+    @Benchmark
+    public void streamToGenerator() throws SQLException, IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            for (int i = 0; i < rows; i++) {
+                resultSet.moveTo(i);
+                CrimeJournalExportService.writeJsonRow(generator, resultSet);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+}
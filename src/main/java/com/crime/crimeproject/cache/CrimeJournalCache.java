@@ -0,0 +1,175 @@
+package com.crime.crimeproject.cache;
+
+import com.crime.crimeproject.dto.CacheStatsDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Кэш часто запрашиваемых записей журнала (вытеснение W-TinyLFU по размеру).
+// Для несуществующих ID хранится Optional.empty() с коротким TTL, чтобы опрос неизвестных ID не ходил в БД.
+// Прочитанное из БД кладется только если с начала чтения этот ID не удаляли из кэша: иначе читатель,
+// получивший строку до записи, положил бы ее уже после удаления — на все время жизни кэша.
+@Component
+public class CrimeJournalCache implements MeterBinder {
+
+    private static final int STRIPES = 1024; // степень двойки
+
+    private final Cache<UUID, Optional<CrimeJournal>> cache;
+    // Счетчики удалений по полосам ID: запись в одну запись журнала не мешает кэшировать остальные
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    public CrimeJournalCache(@Value("${crime.cache.journal.maximum-size:50000}") long maximumSize,
+                             @Value("${crime.cache.journal.expire-after-write:5m}") Duration expireAfterWrite,
+                             @Value("${crime.cache.journal.negative-expire-after-write:30s}") Duration negativeExpireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PositiveNegativeExpiry(expireAfterWrite.toNanos(), negativeExpireAfterWrite.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    // null — записи нет в кэше; Optional.empty() — известно, что записи нет в БД
+    @Nullable
+    public Optional<CrimeJournal> getIfPresent(UUID id) {
+        Optional<CrimeJournal> cached = cache.getIfPresent(id);
+        return cached == null ? null : cached.map(CrimeJournalCache::copy);
+    }
+
+    // Метка, которую читатель берет до запроса к БД и передает в putLoaded или putMissing
+    public long loadStamp(UUID id) {
+        return invalidations.get(stripe(id));
+    }
+
+    // Кладет запись, прочитанную из БД, если после loadStamp ее ID не удаляли из кэша
+    public void putLoaded(CrimeJournal crimeJournal, long stamp) {
+        putIfNotInvalidated(crimeJournal.getId(), Optional.of(copy(crimeJournal)), stamp);
+    }
+
+    // Запоминает, что записи с таким ID нет (при том же условии, что и putLoaded)
+    public void putMissing(UUID id, long stamp) {
+        putIfNotInvalidated(id, Optional.empty(), stamp);
+    }
+
+    // Кладет только что записанную запись (заодно заменяет отрицательную запись для этого ID)
+    public void put(CrimeJournal crimeJournal) {
+        invalidations.incrementAndGet(stripe(crimeJournal.getId()));
+        cache.put(crimeJournal.getId(), Optional.of(copy(crimeJournal)));
+    }
+
+    public void evict(UUID id) {
+        evictAll(List.of(id));
+    }
+
+    public void evictAll(Collection<UUID> ids) {
+        invalidate(ids);
+        // Внутри транзакции параллельный читатель может успеть закэшировать ещё не измененную версию,
+        // поэтому повторяем удаление после завершения транзакции
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(ids);
+                }
+            });
+        }
+    }
+
+    // Очищает кэш целиком (после отключения секции журнала записи пропадают без удаления по ID)
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            invalidations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    // Статистика попаданий, промахов и вытеснений
+    public CacheStatsDTO stats() {
+        CacheStats stats = cache.stats();
+        return CacheStatsDTO.builder()
+                .name("journal.byId")
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+
+    // Метрики cache.gets{result=hit|miss}, cache.evictions и размер для Prometheus
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "journal.byId");
+    }
+
+    // Счетчик увеличивается до удаления: читатель, проверивший его раньше, успеет положить запись
+    // до удаления (compute и invalidate одного ключа не пересекаются), а проверивший позже — не положит
+    private void invalidate(Collection<UUID> ids) {
+        for (UUID id : ids) {
+            invalidations.incrementAndGet(stripe(id));
+        }
+        cache.invalidateAll(ids);
+    }
+
+    private void putIfNotInvalidated(UUID id, Optional<CrimeJournal> value, long stamp) {
+        cache.asMap().compute(id, (key, cached) -> invalidations.get(stripe(key)) == stamp ? value : cached);
+    }
+
+    private static int stripe(UUID id) {
+        return id.hashCode() & (STRIPES - 1);
+    }
+
+    private static CrimeJournal copy(CrimeJournal crimeJournal) {
+        return CrimeJournal.builder()
+                .id(crimeJournal.getId())
+                .description(crimeJournal.getDescription())
+                .dateCrime(crimeJournal.getDateCrime())
+                .isClosed(crimeJournal.getIsClosed())
+                .profileId(crimeJournal.getProfileId())
+                .build();
+    }
+
+    // Время жизни записи зависит от того, положительная она или отрицательная
+    private static class PositiveNegativeExpiry implements Expiry<UUID, Optional<CrimeJournal>> {
+
+        private final long positiveNanos;
+        private final long negativeNanos;
+
+        PositiveNegativeExpiry(long positiveNanos, long negativeNanos) {
+            this.positiveNanos = positiveNanos;
+            this.negativeNanos = negativeNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(UUID key, Optional<CrimeJournal> value, long currentTime) {
+            return value.isPresent() ? positiveNanos : negativeNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(UUID key, Optional<CrimeJournal> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(UUID key, Optional<CrimeJournal> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.crime.crimeproject.cache;
+
+import com.crime.crimeproject.dto.CacheStatsDTO;
+import com.crime.crimeproject.entity.Profile;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэш профилей в памяти процесса. Источник истины — кэш по ID, кэши по логину и почте хранят только ID,
+// поэтому после изменения логина или почты устаревшая запись отбрасывается при чтении.
+// Наружу всегда отдаются копии: сервисы изменяют полученные профили перед обновлением.
+// Прочитанный из БД профиль кладется только если с начала чтения профили не менялись: иначе читатель,
+// получивший старую строку до записи, положил бы ее уже после удаления из кэша — на все время жизни кэша.
+@Component
+public class ProfileCache implements MeterBinder {
+
+    private final Cache<UUID, Profile> byId;
+    private final Cache<String, UUID> idByLogin;
+    private final Cache<String, UUID> idByEmail;
+    // Счетчик изменений профилей. Один на все профили: ID при чтении по логину или почте заранее неизвестен,
+    // а профили меняются редко — параллельное изменению чтение просто не попадает в кэш
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProfileCache(@Value("${crime.cache.profile.maximum-size:10000}") long maximumSize,
+                        @Value("${crime.cache.profile.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.byId = newCache(maximumSize, expireAfterWrite);
+        this.idByLogin = newCache(maximumSize, expireAfterWrite);
+        this.idByEmail = newCache(maximumSize, expireAfterWrite);
+    }
+
+    // Профиль по ID, если он есть в кэше
+    public Optional<Profile> getById(UUID id) {
+        return Optional.ofNullable(byId.getIfPresent(id)).map(ProfileCache::copy);
+    }
+
+    // Профиль по логину, если он есть в кэше и логин не менялся
+    public Optional<Profile> getByLogin(String login) {
+        return Optional.ofNullable(idByLogin.getIfPresent(login))
+                .map(byId::getIfPresent)
+                .filter(profile -> profile.getLogin().equals(login))
+                .map(ProfileCache::copy);
+    }
+
+    // Профиль по почте, если он есть в кэше и почта не менялась
+    public Optional<Profile> getByEmail(String email) {
+        return Optional.ofNullable(idByEmail.getIfPresent(email))
+                .map(byId::getIfPresent)
+                .filter(profile -> profile.getEmail().equals(email))
+                .map(ProfileCache::copy);
+    }
+
+    // Метка, которую читатель берет до запроса к БД и передает в putLoaded
+    public long loadStamp() {
+        return invalidations.get();
+    }
+
+    // Кладет профиль, прочитанный из БД, если после loadStamp профили не менялись. Проверка и вставка
+    // атомарны относительно evict того же ID: удаление дождется вставки и уберет ее
+    public void putLoaded(Profile profile, long stamp) {
+        byId.asMap().compute(profile.getId(), (id, cached) -> {
+            if (invalidations.get() != stamp) {
+                return cached;
+            }
+            idByLogin.put(profile.getLogin(), id);
+            idByEmail.put(profile.getEmail(), id);
+            return copy(profile);
+        });
+    }
+
+    // Кладет (или заменяет) только что записанный профиль во все кэши
+    public void put(Profile profile) {
+        evict(profile.getId());
+        byId.put(profile.getId(), copy(profile));
+        idByLogin.put(profile.getLogin(), profile.getId());
+        idByEmail.put(profile.getEmail(), profile.getId());
+    }
+
+    // Удаляет профиль из всех кэшей; начатые до этого чтения его уже не положат
+    public void evict(UUID id) {
+        invalidations.incrementAndGet();
+        Profile cached = byId.getIfPresent(id);
+        if (cached != null) {
+            idByLogin.invalidate(cached.getLogin());
+            idByEmail.invalidate(cached.getEmail());
+        }
+        byId.invalidate(id);
+    }
+
+    // Очищает все кэши (изменения профилей через другие экземпляры неизвестны по ID)
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        byId.invalidateAll();
+        idByLogin.invalidateAll();
+        idByEmail.invalidateAll();
+    }
+
+    // Статистика попаданий, промахов и вытеснений по каждому кэшу
+    public List<CacheStatsDTO> stats() {
+        return List.of(toStats("profile.byId", byId), toStats("profile.byLogin", idByLogin), toStats("profile.byEmail", idByEmail));
+    }
+
+    // Метрики cache.gets{result=hit|miss}, cache.evictions и размер по каждому кэшу для Prometheus
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "profile.byId");
+        CaffeineCacheMetrics.monitor(registry, idByLogin, "profile.byLogin");
+        CaffeineCacheMetrics.monitor(registry, idByEmail, "profile.byEmail");
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    private static CacheStatsDTO toStats(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        return CacheStatsDTO.builder()
+                .name(name)
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .evictionCount(stats.evictionCount())
+                .hitRate(stats.hitRate())
+                .build();
+    }
+
+    private static Profile copy(Profile profile) {
+        return Profile.builder()
+                .id(profile.getId())
+                .login(profile.getLogin())
+                .password(profile.getPassword())
+                .email(profile.getEmail())
+                .build();
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.crime.crimeproject.controller;
+
+import com.crime.crimeproject.dto.PartitionDTO;
+import com.crime.crimeproject.dto.SlowQueryDTO;
+import com.crime.crimeproject.jdbc.SlowQueryLog;
+import com.crime.crimeproject.service.CrimeJournalPartitionService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+// Служебные операции: журнал медленных запросов и управление секциями (в том числе DDL).
+// Аутентификации в приложении нет, поэтому контроллер создается только при crime.admin.enabled=true
+// и включается там, где /admin закрыт снаружи (внутренняя сеть, прокси с авторизацией)
+@RestController
+@RequestMapping("/admin")
+@ConditionalOnProperty(name = "crime.admin.enabled", havingValue = "true")
+public class AdminController {
+
+    private final SlowQueryLog slowQueryLog;
+    private final CrimeJournalPartitionService crimeJournalPartitionService;
+
+    public AdminController(SlowQueryLog slowQueryLog, CrimeJournalPartitionService crimeJournalPartitionService) {
+        this.slowQueryLog = slowQueryLog;
+        this.crimeJournalPartitionService = crimeJournalPartitionService;
+    }
+
+    // Последние медленные запросы к БД (от новых к старым); пусто, если журнал выключен
+    @GetMapping("/slow-queries")
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries() {
+        return ResponseEntity.ok(slowQueryLog.findAll());
+    }
+
+    // Очистка журнала медленных запросов
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowQueryLog.clear();
+        return ResponseEntity.ok().build();
+    }
+
+    // Секции таблицы журнала с границами и оценкой числа строк
+    @GetMapping("/partitions")
+    public ResponseEntity<List<PartitionDTO>> getPartitions() {
+        return ResponseEntity.ok(crimeJournalPartitionService.getPartitions());
+    }
+
+    // Досрочное создание секций на текущий и следующие годы (обычно выполняется по расписанию)
+    @PostMapping("/partitions/ensure")
+    public ResponseEntity<Integer> ensurePartitions() {
+        return ResponseEntity.ok(crimeJournalPartitionService.ensurePartitions());
+    }
+
+    // Отключение секции за год для архивации, возвращает число строк в ней (любой год до 2000 — архивная секция целиком)
+    @PostMapping("/partitions/{year}/detach")
+    public ResponseEntity<Long> detachPartition(@PathVariable int year) {
+        return ResponseEntity.ok(crimeJournalPartitionService.detachPartition(year));
+    }
+
+}
@@ -1,13 +1,38 @@
 package com.crime.crimeproject.controller;
 
+import com.crime.crimeproject.dto.BatchItemResultDTO;
+import com.crime.crimeproject.dto.CacheStatsDTO;
 import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.dto.CrimeJournalStatsDTO;
+import com.crime.crimeproject.dto.IngestStatusDTO;
+import com.crime.crimeproject.dto.JournalChangeDTO;
+import com.crime.crimeproject.dto.PageDTO;
 import com.crime.crimeproject.exception.NotFoundException;
+import com.crime.crimeproject.exception.ValidationException;
 import com.crime.crimeproject.request.CreateCrimeJournalRequest;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.ExportFormat;
+import com.crime.crimeproject.request.SortDirection;
+import com.crime.crimeproject.request.UpdateCrimeJournalRequest;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.CrimeJournalChangeFeedService;
+import com.crime.crimeproject.service.CrimeJournalExportService;
+import com.crime.crimeproject.service.CrimeJournalIngestService;
 import com.crime.crimeproject.service.CrimeJournalService;
+import com.crime.crimeproject.service.CrimeJournalStatsService;
+import com.crime.crimeproject.service.CrimeJournalStreamService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,9 +41,25 @@ import java.util.UUID;
 public class CrimeJournalController {
 
     private final CrimeJournalService crimeJournalService;
+    private final CrimeJournalExportService crimeJournalExportService;
+    private final CollectionVersionService collectionVersionService;
+    private final CrimeJournalStatsService crimeJournalStatsService;
+    private final CrimeJournalIngestService crimeJournalIngestService;
+    private final CrimeJournalChangeFeedService crimeJournalChangeFeedService;
+    private final CrimeJournalStreamService crimeJournalStreamService;
 
-    public CrimeJournalController(CrimeJournalService crimeJournalService) {
+    public CrimeJournalController(CrimeJournalService crimeJournalService, CrimeJournalExportService crimeJournalExportService,
+                                  CollectionVersionService collectionVersionService, CrimeJournalStatsService crimeJournalStatsService,
+                                  CrimeJournalIngestService crimeJournalIngestService,
+                                  CrimeJournalChangeFeedService crimeJournalChangeFeedService,
+                                  CrimeJournalStreamService crimeJournalStreamService) {
         this.crimeJournalService = crimeJournalService;
+        this.crimeJournalExportService = crimeJournalExportService;
+        this.collectionVersionService = collectionVersionService;
+        this.crimeJournalStatsService = crimeJournalStatsService;
+        this.crimeJournalIngestService = crimeJournalIngestService;
+        this.crimeJournalChangeFeedService = crimeJournalChangeFeedService;
+        this.crimeJournalStreamService = crimeJournalStreamService;
     } // либо вызывать @AllArgsConstructor
 
     // Ручка (end point) — /journal/{id}
@@ -28,10 +69,12 @@ public class CrimeJournalController {
         return crimeJournalService.findById(id);
     }
 
-    // Поиск записей журнала по описанию (ключевым словам)
+    // Поиск записей журнала по описанию (ключевым словам), самые релевантные — первыми
     @GetMapping("/search/{query}")
-    public List<CrimeJournalDTO> getById(@PathVariable String query) {
-        return crimeJournalService.findByDescription(query);
+    public List<CrimeJournalDTO> getById(@PathVariable String query,
+                                         @RequestParam(defaultValue = "" + CrimeJournalService.DEFAULT_PAGE_SIZE) int limit,
+                                         @RequestParam(defaultValue = "0") int offset) {
+        return crimeJournalService.findByDescription(query, limit, offset);
     }
 
     // Создание новой записи в журнале
@@ -40,18 +83,132 @@ public class CrimeJournalController {
         return crimeJournalService.create(request);
     }
 
-    // Получение всех записей журнала
+    // Асинхронное создание записи: запись ставится в очередь, ответ 202 с ID сразу (429 — очередь переполнена)
+    @PostMapping("/async")
+    public ResponseEntity<IngestStatusDTO> createAsync(@RequestBody @Valid CreateCrimeJournalRequest request) {
+        IngestStatusDTO status = crimeJournalIngestService.enqueue(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/journal/async/" + status.getId()))
+                .body(status);
+    }
+
+    // Состояние записи, созданной асинхронно: QUEUED, PERSISTED, REJECTED или FAILED
+    @GetMapping("/async/{id}")
+    public IngestStatusDTO getAsyncStatus(@PathVariable UUID id) {
+        return crimeJournalIngestService.getStatus(id);
+    }
+
+    // Пакетное создание записей журнала, результат возвращается по каждому элементу
+    @PostMapping("/batch")
+    public List<BatchItemResultDTO> createBatch(@RequestBody List<CreateCrimeJournalRequest> requests) {
+        return crimeJournalService.createBatch(requests);
+    }
+
+    // Пакетное обновление записей журнала
+    @PutMapping("/batch")
+    public List<BatchItemResultDTO> updateBatch(@RequestBody List<UpdateCrimeJournalRequest> requests) {
+        return crimeJournalService.updateBatch(requests);
+    }
+
+    // Пакетное удаление записей журнала по списку ID
+    @DeleteMapping("/batch")
+    public List<BatchItemResultDTO> deleteBatch(@RequestBody List<UUID> ids) {
+        return crimeJournalService.deleteBatch(ids);
+    }
+
+    // Получение записей журнала постранично (cursor — токен nextCursor из предыдущего ответа).
+    // Выборка за период (from, to) со статусом (closed или isClosed) читается покрывающим индексом без обращения к таблице
     @GetMapping
-    public ResponseEntity<List<CrimeJournalDTO>> getAll() {
-        List<CrimeJournalDTO> journals = crimeJournalService.getAll();
-        return ResponseEntity.ok(journals);
+    public ResponseEntity<PageDTO<CrimeJournalDTO>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CrimeJournalService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Boolean isClosed,
+            @RequestParam(required = false) Boolean closed,
+            @RequestParam(required = false) UUID profileId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "desc") String sort,
+            WebRequest webRequest) {
+        // closed — синоним isClosed; противоречивые значения — ошибка запроса, а не выбор одного из них
+        if (isClosed != null && closed != null && !isClosed.equals(closed)) {
+            throw new ValidationException("Параметры isClosed и closed противоречат друг другу");
+        }
+        SortDirection direction = SortDirection.from(sort);
+        CrimeJournalFilter filter = CrimeJournalFilter.builder()
+                .isClosed(isClosed != null ? isClosed : closed)
+                .profileId(profileId)
+                .from(from)
+                .to(to)
+                .build();
+        crimeJournalService.validatePage(filter, cursor, limit);
+
+        // ETag берется до чтения, но после проверки параметров: если журнал не менялся, отвечаем 304 без запроса в БД
+        String eTag = collectionVersionService.journalETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(crimeJournalService.getPage(filter, cursor, limit, direction));
     }
 
-    // Получение всех записей журнала для конкретного пользователя по его ID
+    // Лента изменений журнала после позиции since (nextCursor предыдущего ответа; без since — с начала).
+    // wait — сколько секунд ждать новых изменений, если их пока нет (долгий опрос).
+    // 410 — изменения после since уже удалены по сроку хранения, журнал нужно перечитать целиком
+    @GetMapping("/changes")
+    public PageDTO<JournalChangeDTO> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + CrimeJournalChangeFeedService.DEFAULT_BATCH_SIZE) int limit,
+            @RequestParam(defaultValue = "0") int wait) {
+        return crimeJournalChangeFeedService.getChanges(since, limit, wait);
+    }
+
+    // Потоковая выгрузка всего журнала в формате ndjson или csv
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.from(format);
+        StreamingResponseBody body = outputStream -> crimeJournalExportService.export(exportFormat, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=crime_journal." + exportFormat.getExtension())
+                .body(body);
+    }
+
+    // Статистика записей журнала: по статусу, по профилям и по месяцам (необязательно — для профиля и/или года)
+    @GetMapping("/stats")
+    public ResponseEntity<CrimeJournalStatsDTO> getStats(@RequestParam(required = false) UUID profileId,
+                                                         @RequestParam(required = false) Integer year,
+                                                         WebRequest webRequest) {
+        crimeJournalStatsService.validateYear(year);
+        String eTag = collectionVersionService.journalETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(crimeJournalStatsService.getStats(profileId, year));
+    }
+
+    // Статистика кэша записей журнала
+    @GetMapping("/cache/stats")
+    public CacheStatsDTO getCacheStats() {
+        return crimeJournalService.getCacheStats();
+    }
+
+    // Получение записей журнала конкретного пользователя по его ID постранично (sort — asc или desc по дате)
     @GetMapping("/user/{profileId}")
-    public ResponseEntity<List<CrimeJournalDTO>> getByProfileId(@PathVariable UUID profileId) {
-        List<CrimeJournalDTO> journals = crimeJournalService.getByProfileId(profileId);
-        return ResponseEntity.ok(journals);
+    public ResponseEntity<PageDTO<CrimeJournalDTO>> getByProfileId(
+            @PathVariable UUID profileId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + CrimeJournalService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(required = false) Boolean isClosed,
+            @RequestParam(defaultValue = "desc") String sort,
+            WebRequest webRequest) {
+        SortDirection direction = SortDirection.from(sort);
+        crimeJournalService.validatePage(CrimeJournalFilter.builder().build(), cursor, limit);
+        String eTag = collectionVersionService.journalETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        PageDTO<CrimeJournalDTO> page = crimeJournalService.getByProfileId(profileId, isClosed, cursor, limit, direction);
+        return ResponseEntity.ok().eTag(eTag).body(page);
     }
 
     // Обновление записи в журнале по её ID
@@ -67,6 +224,15 @@ public class CrimeJournalController {
         crimeJournalService.delete(id);
     }
 
+    // Подписка на изменения записей пользователя (Server-Sent Events): события journal с JournalChangeDTO,
+    // resync — часть событий пропущена и список нужно перечитать, комментарии heartbeat — поддержание соединения.
+    // Last-Event-ID (EventSource присылает его сам при переподключении) — продолжить после этого события
+    @GetMapping(value = "/user/{profileId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamByProfileId(@PathVariable UUID profileId,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return crimeJournalStreamService.subscribe(profileId, lastEventId);
+    }
+
     // Удаление всех записей журнала, связанных с конкретным пользователем
     @DeleteMapping("/user/{profileId}")
     public void deleteAllByProfileId(@PathVariable UUID profileId) {
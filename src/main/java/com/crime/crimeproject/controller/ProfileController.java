@@ -1,13 +1,17 @@
 package com.crime.crimeproject.controller;
 
+import com.crime.crimeproject.dto.CacheStatsDTO;
 import com.crime.crimeproject.dto.ProfileDTO;
+import com.crime.crimeproject.dto.ProfileDeleteResultDTO;
 import com.crime.crimeproject.exception.NotFoundException;
 import com.crime.crimeproject.exception.ValidationException;
 import com.crime.crimeproject.request.CreateProfileRequest;
+import com.crime.crimeproject.service.CollectionVersionService;
 import com.crime.crimeproject.service.ProfileService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.UUID;
@@ -17,9 +21,11 @@ import java.util.UUID;
 public class ProfileController {
 
     private final ProfileService profileService;
+    private final CollectionVersionService collectionVersionService;
 
-    public ProfileController(ProfileService profileService) {
+    public ProfileController(ProfileService profileService, CollectionVersionService collectionVersionService) {
         this.profileService = profileService;
+        this.collectionVersionService = collectionVersionService;
     }
 
     // Создание нового пользователя
@@ -38,9 +44,21 @@ public class ProfileController {
 
     // Получение списка всех пользователей
     @GetMapping
-    public ResponseEntity<List<ProfileDTO>> getAll() {
+    public ResponseEntity<List<ProfileDTO>> getAll(WebRequest webRequest) {
+        // ETag берется до чтения: если профили не менялись, отвечаем 304 без запроса в БД
+        String eTag = collectionVersionService.profileETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
         List<ProfileDTO> profiles = profileService.getAll();
-        return ResponseEntity.ok(profiles);
+        return ResponseEntity.ok().eTag(eTag).body(profiles);
+    }
+
+    // Статистика кэша профилей (попадания, промахи, вытеснения)
+    @GetMapping("/cache/stats")
+    public ResponseEntity<List<CacheStatsDTO>> getCacheStats() {
+        return ResponseEntity.ok(profileService.getCacheStats());
     }
 
     // Обновление данных пользователя по ID
@@ -56,11 +74,11 @@ public class ProfileController {
         }
     }
 
-    // Удаление пользователя по ID
+    // Удаление пользователя по ID; cascade=true — вместе с его записями журнала, атомарно и за один запрос к БД
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable UUID id) {
-        boolean isDeleted = profileService.delete(id);
-        return isDeleted ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    public ResponseEntity<ProfileDeleteResultDTO> delete(@PathVariable UUID id,
+                                                         @RequestParam(defaultValue = "false") boolean cascade) {
+        return ResponseEntity.ok(profileService.delete(id, cascade));
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.crime.crimeproject.datasource;
+
+import org.springframework.lang.Nullable;
+
+// Маршрут чтения текущего запроса: основная БД или реплика. Решается веб-слоем один раз до обработчика
+// (доступность реплики и токен собственной записи клиента) и снимается после него. По нему же выбираются
+// и пул соединения, и ETag ответа, поэтому смена доступности реплики посреди запроса их не рассогласует
+public final class ReadConsistency {
+
+    // Чтение с основной БД: клиенту нужна собственная запись, которую реплика еще не применила, или реплика отстала
+    public static final Route PRIMARY = new Route(false, 0, 0);
+
+    private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    public static void route(Route route) {
+        ROUTE.set(route);
+    }
+
+    // Маршрут текущего запроса; null — не решен (фоновые задачи, асинхронная часть ответа)
+    @Nullable
+    public static Route current() {
+        return ROUTE.get();
+    }
+
+    public static void clear() {
+        ROUTE.remove();
+    }
+
+    // replica — транзакции readOnly = true читают с реплики; journalVersion и profileVersion — версии коллекций,
+    // данные которых на ней уже видны: по ним выдаются ETag, чтобы отстающая реплика не отдала старые данные с новым ETag
+    public record Route(boolean replica, long journalVersion, long profileVersion) {
+
+        public static Route replica(long journalVersion, long profileVersion) {
+            return new Route(true, journalVersion, profileVersion);
+        }
+
+    }
+
+}
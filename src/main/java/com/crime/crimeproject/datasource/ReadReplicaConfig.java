@@ -0,0 +1,67 @@
+package com.crime.crimeproject.datasource;
+
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Включается свойством crime.datasource.replica.enabled: вместо одного пула spring.datasource создаются пулы
+// основной БД и реплики, а приложение получает источник, который направляет транзакции readOnly = true на реплику.
+// Liquibase и все записи идут в основную БД
+@Configuration
+@ConditionalOnProperty(name = "crime.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    // Пул основной БД с теми же настройками spring.datasource, что и без реплики
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    // Пул реплики: свойства crime.datasource.replica.* связываются с HikariDataSource напрямую (jdbc-url, username, ...)
+    @Bean
+    @ConfigurationProperties("crime.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               CollectionVersionService collectionVersionService,
+                                               @Value("${crime.datasource.replica.check-interval:500ms}") Duration checkInterval,
+                                               @Value("${crime.datasource.replica.max-lag:5s}") Duration maxLag) {
+        return new ReplicaLagMonitor(new JdbcTemplate(primaryDataSource), new JdbcTemplate(replicaDataSource),
+                collectionVersionService, checkInterval, maxLag);
+    }
+
+    // Источник для JdbcTemplate и менеджера транзакций
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor));
+    }
+
+}
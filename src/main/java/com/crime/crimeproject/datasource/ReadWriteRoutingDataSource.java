@@ -0,0 +1,39 @@
+package com.crime.crimeproject.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Выбирает пул для соединения: транзакции readOnly = true читают с реплики, все остальное идет в основную БД.
+// Для веб-запроса реплика выбирается по маршруту, решенному до обработчика (ReadConsistency): тому же,
+// по которому выдан ETag. Вне запроса — пока реплика не отстает сильнее допустимого и доступна.
+// Признак readOnly известен только после начала транзакции, поэтому источник оборачивается
+// в LazyConnectionDataSourceProxy: реальное соединение берется при первом запросе к БД
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Role {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(Role.PRIMARY, primary, Role.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        ReadConsistency.Route route = ReadConsistency.current();
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && (route != null ? route.replica() : replicaLagMonitor.isAvailable());
+        return replicaRead ? Role.REPLICA : Role.PRIMARY;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.crime.crimeproject.datasource;
+
+import com.crime.crimeproject.service.CollectionVersionService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+
+// Следит, насколько реплика отстает от основной БД. Периодически запоминает версии коллекций и позицию WAL
+// основной БД; когда реплика применила WAL до этой позиции, данные этих версий на ней уже видны.
+// Реплика считается доступной, если последняя такая отметка не старше max-lag
+public class ReplicaLagMonitor implements SmartLifecycle, MeterBinder {
+
+    // Позиции WAL в байтах от начала. Если «реплика» — сама основная БД (проверка на одном сервере),
+    // pg_is_in_recovery() = false и берется текущая позиция
+    private static final String PRIMARY_POSITION_SQL = "SELECT pg_current_wal_insert_lsn() - '0/0'::pg_lsn";
+    private static final String REPLAYED_POSITION_SQL = "SELECT CASE WHEN pg_is_in_recovery() THEN pg_last_wal_replay_lsn() " +
+                                                        "ELSE pg_current_wal_insert_lsn() END - '0/0'::pg_lsn";
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final CollectionVersionService collectionVersionService;
+    private final Duration checkInterval;
+    private final long maxLagNanos;
+
+    private volatile ReadConsistency.Route replicaRoute; // null — реплика сейчас недоступна
+    private volatile long replayedPosition = -1;
+    private volatile long confirmedAt; // System.nanoTime() отметки, которую реплика уже применила; 0 — еще не было
+
+    // Используются только потоком проверки
+    private Mark pending;
+    private Mark confirmed;
+
+    private volatile boolean running;
+    private Thread checker;
+
+    public ReplicaLagMonitor(JdbcTemplate primaryJdbcTemplate, JdbcTemplate replicaJdbcTemplate,
+                             CollectionVersionService collectionVersionService, Duration checkInterval, Duration maxLag) {
+        this.primaryJdbcTemplate = primaryJdbcTemplate;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.collectionVersionService = collectionVersionService;
+        this.checkInterval = checkInterval;
+        this.maxLagNanos = maxLag.toNanos();
+    }
+
+    // Можно ли сейчас читать с реплики
+    public boolean isAvailable() {
+        return replicaRoute != null;
+    }
+
+    // Маршрут на реплику с версиями коллекций, данные которых на ней уже видны; null — реплика недоступна.
+    // Доступность и версии берутся одним чтением, чтобы запрос не получил одно без другого
+    @Nullable
+    public ReadConsistency.Route replicaRoute() {
+        return replicaRoute;
+    }
+
+    // Применила ли реплика WAL до позиции position (по данным последней проверки)
+    public boolean hasReplayed(long position) {
+        return replayedPosition >= position;
+    }
+
+    // Текущая позиция WAL основной БД: после записи все ее изменения находятся не дальше этой позиции
+    public long primaryPosition() {
+        return primaryJdbcTemplate.queryForObject(PRIMARY_POSITION_SQL, Long.class);
+    }
+
+    // Одна проверка: сверяет позицию реплики с ожидающей отметкой и ставит новую
+    void check() {
+        try {
+            Long replayed = replicaJdbcTemplate.queryForObject(REPLAYED_POSITION_SQL, Long.class);
+            replayedPosition = replayed != null ? replayed : -1; // реплика еще ничего не применила
+            if (pending != null && replayedPosition >= pending.position) {
+                confirmed = pending;
+                confirmedAt = pending.takenAt;
+                pending = null;
+            }
+            // Новая отметка ставится только после подтверждения прежней: иначе при отставании больше
+            // интервала проверки отметки сменялись бы быстрее, чем реплика успевает их догнать
+            if (pending == null) {
+                // Время и версии берутся до позиции WAL: все учтенные в версиях записи уже в WAL до нее
+                long takenAt = System.nanoTime();
+                long journalVersion = collectionVersionService.journalVersion();
+                long profileVersion = collectionVersionService.profileVersion();
+                pending = new Mark(takenAt, journalVersion, profileVersion, primaryPosition());
+            }
+        } catch (DataAccessException e) {
+            replayedPosition = -1;
+        }
+        updateAvailability();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        checker = Thread.ofVirtual().name("replica-lag-monitor").start(() -> {
+            while (running) {
+                check();
+                try {
+                    Thread.sleep(checkInterval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        checker.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crime.datasource.replica.available", this, monitor -> monitor.isAvailable() ? 1 : 0)
+                .register(registry);
+        Gauge.builder("crime.datasource.replica.lag", this, ReplicaLagMonitor::lagSeconds)
+                .description("Не больше стольких секунд отстают данные реплики")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    private double lagSeconds() {
+        long at = confirmedAt;
+        return at == 0 ? Double.NaN : (System.nanoTime() - at) / 1e9;
+    }
+
+    private void updateAvailability() {
+        boolean fresh = replayedPosition >= 0 && confirmed != null && System.nanoTime() - confirmedAt <= maxLagNanos;
+        replicaRoute = fresh ? ReadConsistency.Route.replica(confirmed.journalVersion, confirmed.profileVersion) : null;
+    }
+
+    // Отметка: версии коллекций и позиция WAL основной БД, после которой они видны на реплике
+    private record Mark(long takenAt, long journalVersion, long profileVersion, long position) {
+    }
+
+}
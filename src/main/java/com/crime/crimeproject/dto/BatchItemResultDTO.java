@@ -0,0 +1,19 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class BatchItemResultDTO {
+
+    private int index; // позиция элемента в теле запроса
+    private UUID id;
+    private BatchItemStatus status;
+    private String message; // причина отказа, null при успехе
+
+}
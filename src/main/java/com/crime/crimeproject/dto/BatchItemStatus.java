@@ -0,0 +1,12 @@
+package com.crime.crimeproject.dto;
+
+// Итог обработки одного элемента пакетного запроса
+public enum BatchItemStatus {
+
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    REJECTED
+
+}
@@ -0,0 +1,10 @@
+package com.crime.crimeproject.dto;
+
+// Вид изменения записи журнала в ленте изменений
+public enum ChangeOperation {
+
+    INSERT,
+    UPDATE,
+    DELETE
+
+}
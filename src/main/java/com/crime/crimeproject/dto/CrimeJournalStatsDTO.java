@@ -0,0 +1,20 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class CrimeJournalStatsDTO {
+
+    private long total;
+    private long closed;
+    private long open;
+    private List<ProfileStatsDTO> byProfile;
+    private List<MonthStatsDTO> byMonth;
+
+}
@@ -0,0 +1,11 @@
+package com.crime.crimeproject.dto;
+
+// Состояние записи, принятой на асинхронную вставку
+public enum IngestStatus {
+
+    QUEUED,
+    PERSISTED,
+    REJECTED,
+    FAILED
+
+}
@@ -0,0 +1,18 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class IngestStatusDTO {
+
+    private UUID id;
+    private IngestStatus status;
+    private String message; // причина отказа или ошибки, null в остальных случаях
+
+}
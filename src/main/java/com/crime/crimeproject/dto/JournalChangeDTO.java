@@ -0,0 +1,21 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class JournalChangeDTO {
+
+    private long seq;
+    private ChangeOperation operation;
+    private Instant changedAt;
+    private CrimeJournalDTO journal; // для DELETE — последние значения удаленной записи
+    private UUID previousProfileId; // для UPDATE — прежний профиль, если запись перешла к другому; иначе null
+
+}
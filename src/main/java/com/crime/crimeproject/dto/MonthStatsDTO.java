@@ -0,0 +1,18 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class MonthStatsDTO {
+
+    private int year;
+    private int month;
+    private long total;
+    private long closed;
+    private long open;
+
+}
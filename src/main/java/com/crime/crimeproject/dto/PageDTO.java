@@ -0,0 +1,17 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class PageDTO<T> {
+
+    private List<T> items;
+    private String nextCursor; // null, если следующей страницы нет
+
+}
@@ -0,0 +1,16 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class PartitionDTO {
+
+    private String name;
+    private String bounds; // границы секции в синтаксисе PostgreSQL (FOR VALUES FROM ... TO ... / DEFAULT)
+    private long estimatedRows; // оценка планировщика (pg_class.reltuples), без сканирования секции
+
+}
@@ -0,0 +1,18 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ProfileDeleteResultDTO {
+
+    private UUID profileId;
+    private int deletedProfiles;
+    private int deletedJournalEntries;
+
+}
@@ -0,0 +1,19 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class ProfileStatsDTO {
+
+    private UUID profileId;
+    private long total;
+    private long closed;
+    private long open;
+
+}
@@ -0,0 +1,22 @@
+package com.crime.crimeproject.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+public class SlowQueryDTO {
+
+    private Instant executedAt;
+    private double durationMs;
+    private String sql;
+    private Map<String, String> parameters; // значения скрыты, если не включен crime.jdbc.slow-query.log-parameters (пароли — всегда)
+    private Integer batchSize; // null — одиночный запрос
+    private String plan; // EXPLAIN (ANALYZE, BUFFERS), если запрос попал в выборку
+
+}
@@ -0,0 +1,24 @@
+package com.crime.crimeproject.entity;
+
+import com.crime.crimeproject.dto.ChangeOperation;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Строка журнала изменений crime_journal_changes: что произошло с записью журнала и в какой транзакции
+@Data
+@Builder
+@AllArgsConstructor
+public class CrimeJournalChange {
+
+    private long seq;
+    private long txid;
+    private ChangeOperation operation;
+    private Instant changedAt;
+    private CrimeJournal crimeJournal;
+    private UUID previousProfileId; // профиль до UPDATE, если запись перешла к другому профилю
+
+}
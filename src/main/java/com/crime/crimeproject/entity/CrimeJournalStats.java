@@ -0,0 +1,21 @@
+package com.crime.crimeproject.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Строка сводной таблицы crime_journal_stats: число записей профиля за месяц с заданным статусом
+@Data
+@Builder
+@AllArgsConstructor
+public class CrimeJournalStats {
+
+    private UUID profileId;
+    private LocalDate month;
+    private Boolean isClosed;
+    private long crimeCount;
+
+}
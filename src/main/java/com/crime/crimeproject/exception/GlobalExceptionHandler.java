@@ -1,5 +1,6 @@
 package com.crime.crimeproject.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -32,4 +33,18 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
 
+    // Обработчик исключений для TooManyRequestsException: очередь переполнена, клиенту стоит повторить запрос позже
+    @ExceptionHandler(value = TooManyRequestsException.class)
+    public ResponseEntity<Object> handleTooManyRequestsException(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(List.of(ex.getMessage()));
+    }
+
+    // Обработчик исключений для GoneException: запрошенная позиция уже удалена, продолжить с нее нельзя
+    @ExceptionHandler(value = GoneException.class)
+    public ResponseEntity<Object> handleGoneException(GoneException ex) {
+        return ResponseEntity.status(HttpStatus.GONE).body(List.of(ex.getMessage()));
+    }
+
 }
\ No newline at end of file
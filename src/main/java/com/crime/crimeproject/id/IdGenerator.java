@@ -0,0 +1,10 @@
+package com.crime.crimeproject.id;
+
+import java.util.UUID;
+
+// Стратегия генерации первичных ключей для журнала и профилей (свойство crime.id.strategy)
+public interface IdGenerator {
+
+    UUID nextId();
+
+}
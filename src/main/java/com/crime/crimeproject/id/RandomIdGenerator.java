@@ -0,0 +1,18 @@
+package com.crime.crimeproject.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Случайные UUID версии 4: ключи равномерно разбросаны по индексу первичного ключа
+@Component
+@ConditionalOnProperty(name = "crime.id.strategy", havingValue = "random")
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public UUID nextId() {
+        return UUID.randomUUID();
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.crime.crimeproject.id;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// UUID версии 7 (RFC 9562): 48 бит времени в миллисекундах, 12 бит счетчика, 62 случайных бита.
+// Новые ключи попадают в правый край B-дерева первичного ключа, а не в случайные страницы.
+// Монотонность без блокировок: время и счетчик хранятся в одном AtomicLong и продвигаются через CAS;
+// если за миллисекунду выдано больше 4096 ID, счетчик переносится в поле времени (оно немного опережает часы).
+// Случайная часть — из SecureRandom, как у UUID.randomUUID(): ID видны клиентам, и по ним нельзя угадывать соседние.
+@Component
+@ConditionalOnProperty(name = "crime.id.strategy", havingValue = "v7", matchIfMissing = true)
+public class UuidV7Generator implements IdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+    private static final long RANDOM_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+    private final SecureRandom random = new SecureRandom();
+
+    @Override
+    public UUID nextId() {
+        long timestampAndCounter = nextTimestampAndCounter();
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | VERSION
+                | (timestampAndCounter & ((1L << COUNTER_BITS) - 1));
+        long leastSigBits = VARIANT | (random.nextLong() & RANDOM_MASK);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    // Следующее значение «время << 12 | счетчик», строго больше всех выданных ранее
+    private long nextTimestampAndCounter() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = lastTimestampAndCounter.get();
+            long next = Math.max(now, last + 1);
+            if (lastTimestampAndCounter.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+}
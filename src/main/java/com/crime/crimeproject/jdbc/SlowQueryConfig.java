@@ -0,0 +1,26 @@
+package com.crime.crimeproject.jdbc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.time.Duration;
+
+// Включается свойством crime.jdbc.slow-query.enabled: подменяет NamedParameterJdbcTemplate, который Spring Boot
+// создает по умолчанию, на шаблон с журналом медленных запросов
+@Configuration
+@ConditionalOnProperty(name = "crime.jdbc.slow-query.enabled", havingValue = "true")
+public class SlowQueryConfig {
+
+    @Bean
+    public NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate, SlowQueryLog slowQueryLog,
+                                                                 @Value("${crime.jdbc.slow-query.threshold:200ms}") Duration threshold,
+                                                                 @Value("${crime.jdbc.slow-query.explain-sample-rate:0.0}") double explainSampleRate,
+                                                                 @Value("${crime.jdbc.slow-query.log-parameters:false}") boolean logParameters) {
+        return new SlowQueryJdbcTemplate(jdbcTemplate, slowQueryLog, threshold, explainSampleRate, logParameters);
+    }
+
+}
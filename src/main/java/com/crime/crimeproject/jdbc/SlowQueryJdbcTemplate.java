@@ -0,0 +1,204 @@
+package com.crime.crimeproject.jdbc;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.*;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.lang.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// NamedParameterJdbcTemplate, который замеряет выполнение каждого запроса и пишет медленные в SlowQueryLog.
+// Для части медленных SELECT в фоне снимается план EXPLAIN (ANALYZE, BUFFERS): ANALYZE выполняет запрос
+// повторно, поэтому изменяющие и блокирующие запросы не анализируются, сам EXPLAIN идет в транзакции READ ONLY,
+// которая всегда откатывается (SELECT может вызвать изменяющую функцию), а очередь фоновых EXPLAIN ограничена.
+// Значения параметров (логины, email, описания) по умолчанию не сохраняются: в журнале остаются только имена,
+// а в плане строковые литералы (значения в условиях) заменяются на '***'. logParameters = true — для отладки
+public class SlowQueryJdbcTemplate extends NamedParameterJdbcTemplate implements DisposableBean {
+
+    private static final String REDACTED = "***";
+    private static final int MAX_VALUE_LENGTH = 200;
+    // Изменения данных и блокировки строк (FOR UPDATE / FOR NO KEY UPDATE / FOR SHARE / FOR KEY SHARE)
+    private static final Pattern MODIFYING = Pattern.compile("\\b(INSERT|UPDATE|DELETE|MERGE|SHARE)\\b");
+    // Литерал в плане: 'значение'::тип, кавычка внутри удвоена
+    private static final Pattern PLAN_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+
+    private final SlowQueryLog slowQueryLog;
+    private final long thresholdNanos;
+    private final double explainSampleRate;
+    private final boolean logParameters;
+    private final ExecutorService explainExecutor;
+
+    public SlowQueryJdbcTemplate(JdbcTemplate jdbcTemplate, SlowQueryLog slowQueryLog, Duration threshold, double explainSampleRate,
+                                 boolean logParameters) {
+        super(jdbcTemplate);
+        this.slowQueryLog = slowQueryLog;
+        this.thresholdNanos = threshold.toNanos();
+        this.explainSampleRate = explainSampleRate;
+        this.logParameters = logParameters;
+        // Один поток и короткая очередь: при всплеске медленных запросов лишние EXPLAIN просто отбрасываются
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                Thread.ofVirtual().name("slow-query-explain").factory(), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @Override
+    protected PreparedStatementCreator getPreparedStatementCreator(String sql, SqlParameterSource paramSource,
+                                                                   @Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
+        return new TimedStatementCreator(super.getPreparedStatementCreator(sql, paramSource, customizer), sql, paramSource);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, SqlParameterSource[] batchArgs) {
+        long start = System.nanoTime();
+        try {
+            return super.batchUpdate(sql, batchArgs);
+        } finally {
+            long duration = System.nanoTime() - start;
+            if (duration >= thresholdNanos) {
+                // Параметры пакета не копируются целиком: для диагностики достаточно первого элемента
+                slowQueryLog.add(sql, batchArgs.length > 0 ? describe(batchArgs[0]) : Map.of(), batchArgs.length, duration);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    private void onExecuted(String sql, SqlParameterSource paramSource, long duration) {
+        if (duration < thresholdNanos) {
+            return;
+        }
+        SlowQueryLog.Entry entry = slowQueryLog.add(sql, describe(paramSource), null, duration);
+        if (isSelect(sql) && ThreadLocalRandom.current().nextDouble() < explainSampleRate) {
+            explainExecutor.execute(() -> entry.setPlan(explain(sql, paramSource)));
+        }
+    }
+
+    // Выполняет EXPLAIN в обход замера, иначе медленный EXPLAIN сам попадет в журнал. Фоновый поток не участвует
+    // в транзакциях Spring, поэтому транзакция открывается на соединении вручную и откатывается в любом случае:
+    // если запрос все же пытается что-то изменить, READ ONLY прерывает его ошибкой
+    private String explain(String sql, SqlParameterSource paramSource) {
+        try {
+            PreparedStatementCreator creator = super.getPreparedStatementCreator("EXPLAIN (ANALYZE, BUFFERS) " + sql, paramSource, null);
+            List<String> lines = getJdbcOperations().execute((ConnectionCallback<List<String>>) con -> explainReadOnly(con, creator));
+            String plan = String.join("\n", lines);
+            return logParameters ? plan : redactPlan(plan);
+        } catch (RuntimeException e) {
+            return "Не удалось получить план: " + e.getMessage();
+        }
+    }
+
+    static List<String> explainReadOnly(Connection con, PreparedStatementCreator creator) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SET TRANSACTION READ ONLY");
+            }
+            List<String> lines = new ArrayList<>();
+            try (PreparedStatement statement = creator.createPreparedStatement(con);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    lines.add(rs.getString(1));
+                }
+            }
+            return lines;
+        } finally {
+            con.rollback();
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    // План с параметрами, подставленными в условия как литералы: их значения скрываются так же, как в журнале
+    static String redactPlan(String plan) {
+        return PLAN_LITERAL.matcher(plan).replaceAll("'" + REDACTED + "'");
+    }
+
+    // Только чтение: SELECT или WITH без изменяющих частей и без блокировки строк
+    static boolean isSelect(String sql) {
+        String statement = sql.stripLeading().toUpperCase(Locale.ROOT);
+        return (statement.startsWith("SELECT") || statement.startsWith("WITH")) && !MODIFYING.matcher(statement).find();
+    }
+
+    private Map<String, String> describe(SqlParameterSource paramSource) {
+        String[] names = paramSource.getParameterNames();
+        if (names == null) {
+            return Map.of();
+        }
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (String name : names) {
+            if (!logParameters || name.toLowerCase(Locale.ROOT).contains("password")) {
+                parameters.put(name, REDACTED);
+                continue;
+            }
+            String value = String.valueOf(paramSource.getValue(name));
+            parameters.put(name, value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "…" : value);
+        }
+        return parameters;
+    }
+
+    // Оборачивает PreparedStatement так, чтобы замерялись его execute-методы
+    private class TimedStatementCreator implements PreparedStatementCreator, SqlProvider, ParameterDisposer {
+
+        private final PreparedStatementCreator delegate;
+        private final String sql;
+        private final SqlParameterSource paramSource;
+
+        TimedStatementCreator(PreparedStatementCreator delegate, String sql, SqlParameterSource paramSource) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.paramSource = paramSource;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+            PreparedStatement statement = delegate.createPreparedStatement(con);
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if (!method.getName().startsWith("execute")) {
+                            return invoke(statement, method, args);
+                        }
+                        long start = System.nanoTime();
+                        try {
+                            return invoke(statement, method, args);
+                        } finally {
+                            onExecuted(sql, paramSource, System.nanoTime() - start);
+                        }
+                    });
+        }
+
+        @Override
+        public String getSql() {
+            return delegate instanceof SqlProvider sqlProvider ? sqlProvider.getSql() : sql;
+        }
+
+        @Override
+        public void cleanupParameters() {
+            if (delegate instanceof ParameterDisposer parameterDisposer) {
+                parameterDisposer.cleanupParameters();
+            }
+        }
+
+        private static Object invoke(PreparedStatement statement, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.crime.crimeproject.jdbc;
+
+import com.crime.crimeproject.dto.SlowQueryDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Кольцевой буфер последних медленных запросов: старые записи перезаписываются новыми, память ограничена
+@Component
+public class SlowQueryLog {
+
+    private final AtomicReferenceArray<Entry> buffer;
+    private final AtomicLong written = new AtomicLong();
+
+    public SlowQueryLog(@Value("${crime.jdbc.slow-query.buffer-size:200}") int bufferSize) {
+        this.buffer = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    // Добавляет запись; план запроса можно дописать позже, когда EXPLAIN отработает
+    public Entry add(String sql, Map<String, String> parameters, Integer batchSize, long durationNanos) {
+        Entry entry = new Entry(Instant.now(), durationNanos, sql, parameters, batchSize);
+        long position = written.getAndIncrement();
+        buffer.set((int) (position % buffer.length()), entry);
+        return entry;
+    }
+
+    // Записи от новых к старым
+    public List<SlowQueryDTO> findAll() {
+        long last = written.get();
+        long first = Math.max(0, last - buffer.length());
+        List<SlowQueryDTO> result = new ArrayList<>();
+        for (long position = last - 1; position >= first; position--) {
+            Entry entry = buffer.get((int) (position % buffer.length()));
+            if (entry != null) {
+                result.add(entry.toDTO());
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < buffer.length(); i++) {
+            buffer.set(i, null);
+        }
+    }
+
+    public static class Entry {
+
+        private final Instant executedAt;
+        private final long durationNanos;
+        private final String sql;
+        private final Map<String, String> parameters;
+        private final Integer batchSize;
+        private volatile String plan;
+
+        private Entry(Instant executedAt, long durationNanos, String sql, Map<String, String> parameters, Integer batchSize) {
+            this.executedAt = executedAt;
+            this.durationNanos = durationNanos;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+        }
+
+        public void setPlan(String plan) {
+            this.plan = plan;
+        }
+
+        private SlowQueryDTO toDTO() {
+            return SlowQueryDTO.builder()
+                    .executedAt(executedAt)
+                    .durationMs(durationNanos / 1_000_000.0)
+                    .sql(sql)
+                    .parameters(parameters)
+                    .batchSize(batchSize)
+                    .plan(plan)
+                    .build();
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.crime.crimeproject.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Замеряет время каждого публичного метода и число возвращенных строк.
+// Метрики создаются один раз на метод и кэшируются: на горячем пути только поиск в ConcurrentHashMap
+// и System.nanoTime(), без построения тегов и без аллокаций.
+// Вызовы, обслуженные из кэша (RepositoryCacheHit), пишутся в отдельный таймер и не учитываются в числе строк.
+public class MethodMetricsInterceptor implements MethodInterceptor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry; // реестр берется при первом вызове: advisor создается раньше него
+    private final String timerName;
+    private final String rowsName; // null — строки не считаются
+    private final String cacheHitName; // null — попадания в кэш не отделяются
+    private final String classTag;
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public MethodMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String timerName, String rowsName,
+                                    String cacheHitName, String classTag) {
+        this.meterRegistry = meterRegistry;
+        this.timerName = timerName;
+        this.rowsName = rowsName;
+        this.cacheHitName = cacheHitName;
+        this.classTag = classTag;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMeters methodMeters = meters.get(invocation.getMethod());
+        if (methodMeters == null) {
+            methodMeters = meters.computeIfAbsent(invocation.getMethod(),
+                    method -> register(ClassUtils.getUserClass(invocation.getThis()).getSimpleName(), method));
+        }
+
+        if (methodMeters.cacheHit != null) {
+            RepositoryCacheHit.consume(); // признак, оставшийся от вызова без замера, не должен попасть в этот
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            long duration = System.nanoTime() - start;
+            if (methodMeters.cacheHit != null && RepositoryCacheHit.consume()) {
+                methodMeters.cacheHit.record(duration, TimeUnit.NANOSECONDS);
+                return result;
+            }
+            methodMeters.success.record(duration, TimeUnit.NANOSECONDS);
+            if (methodMeters.rows != null) {
+                recordRows(methodMeters.rows, result);
+            }
+            return result;
+        } catch (Throwable e) {
+            methodMeters.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private MethodMeters register(String className, Method method) {
+        MeterRegistry meterRegistry = this.meterRegistry.getObject();
+        Timer success = Timer.builder(timerName)
+                .tag(classTag, className)
+                .tag("method", method.getName())
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        Timer error = Timer.builder(timerName)
+                .tag(classTag, className)
+                .tag("method", method.getName())
+                .tag("outcome", "error")
+                .register(meterRegistry);
+        DistributionSummary rows = rowsName == null || !returnsRows(method.getReturnType()) ? null
+                : DistributionSummary.builder(rowsName)
+                .baseUnit("rows")
+                .tag(classTag, className)
+                .tag("method", method.getName())
+                .register(meterRegistry);
+        Timer cacheHit = cacheHitName == null ? null : Timer.builder(cacheHitName)
+                .tag(classTag, className)
+                .tag("method", method.getName())
+                .register(meterRegistry);
+        return new MethodMeters(success, error, rows, cacheHit);
+    }
+
+    private static boolean returnsRows(Class<?> type) {
+        return Collection.class.isAssignableFrom(type) || Optional.class.equals(type) || Map.class.isAssignableFrom(type);
+    }
+
+    private static void recordRows(DistributionSummary rows, Object result) {
+        if (result instanceof Collection<?> collection) {
+            rows.record(collection.size());
+        } else if (result instanceof Optional<?> optional) {
+            rows.record(optional.isPresent() ? 1 : 0);
+        } else if (result instanceof Map<?, ?> map) {
+            rows.record(map.size());
+        }
+    }
+
+    private record MethodMeters(Timer success, Timer error, DistributionSummary rows, Timer cacheHit) {
+    }
+
+}
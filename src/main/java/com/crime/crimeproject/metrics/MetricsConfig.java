@@ -0,0 +1,73 @@
+package com.crime.crimeproject.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.Lifecycle;
+import org.springframework.context.Phased;
+import org.springframework.context.annotation.Role;
+import org.springframework.stereotype.Repository;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+// Метрики методов репозиториев (crime.repository.query, crime.repository.rows, crime.repository.cache.hit)
+// и сервисов (crime.service.call)
+@Configuration
+public class MetricsConfig {
+
+    // Методы жизненного цикла и регистрации метрик фоновых сервисов вызывает контейнер, это не бизнес-вызовы
+    private static final List<Class<?>> INFRASTRUCTURE_INTERFACES = List.of(Lifecycle.class, Phased.class, MeterBinder.class);
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor repositoryMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return advisor(Repository.class,
+                new MethodMetricsInterceptor(meterRegistry, "crime.repository.query", "crime.repository.rows",
+                        "crime.repository.cache.hit", "repository"));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor serviceMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return advisor(Service.class,
+                new MethodMetricsInterceptor(meterRegistry, "crime.service.call", null, null, "service"));
+    }
+
+    private static Advisor advisor(Class<? extends Annotation> stereotype, MethodMetricsInterceptor interceptor) {
+        // Только публичные методы самого класса: служебные методы Object и пакетные геттеры не замеряются
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return targetClass.isAnnotationPresent(stereotype)
+                        && !targetClass.isAnnotationPresent(NotMetered.class)
+                        && Modifier.isPublic(method.getModifiers())
+                        && !Modifier.isStatic(method.getModifiers())
+                        && method.getDeclaringClass() != Object.class
+                        && !isInfrastructureMethod(method, targetClass);
+            }
+        };
+        return new DefaultPointcutAdvisor(pointcut, interceptor);
+    }
+
+    private static boolean isInfrastructureMethod(Method method, Class<?> targetClass) {
+        for (Class<?> infrastructure : INFRASTRUCTURE_INTERFACES) {
+            if (infrastructure.isAssignableFrom(targetClass)
+                    && ClassUtils.hasMethod(infrastructure, method.getName(), method.getParameterTypes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.crime.crimeproject.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Исключает класс из метрик crime.service.call: служебные сервисы, которые вызываются на каждом запросе
+// или подолгу ждут (ожидание изменений в long-poll), а не выполняют бизнес-операцию
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NotMetered {
+}
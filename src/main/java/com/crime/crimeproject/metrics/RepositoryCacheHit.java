@@ -0,0 +1,24 @@
+package com.crime.crimeproject.metrics;
+
+// Признак «текущий вызов репозитория обслужен из кэша, без запроса к БД». Репозиторий выставляет его
+// перед возвратом закэшированного результата, MethodMetricsInterceptor снимает и записывает такой вызов
+// в отдельный таймер — иначе попадания в кэш занижали бы время запросов crime.repository.query
+public final class RepositoryCacheHit {
+
+    private static final ThreadLocal<Boolean> HIT = new ThreadLocal<>();
+
+    private RepositoryCacheHit() {
+    }
+
+    public static void mark() {
+        HIT.set(Boolean.TRUE);
+    }
+
+    // Снимает признак и возвращает, был ли он выставлен
+    static boolean consume() {
+        boolean hit = HIT.get() != null;
+        HIT.remove();
+        return hit;
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.crime.crimeproject.pagination;
+
+import com.crime.crimeproject.exception.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Позиция в ленте изменений журнала по (txid, seq); наружу отдаётся как непрозрачный токен
+@Data
+@AllArgsConstructor
+public class ChangeFeedCursor {
+
+    private static final String SEPARATOR = "|";
+
+    // Начало ленты: до первой транзакции
+    public static final ChangeFeedCursor START = new ChangeFeedCursor(0, 0);
+
+    private long txid;
+    private long seq;
+
+    // Стоит ли эта позиция раньше other в порядке ленты (txid, seq)
+    public boolean isBefore(ChangeFeedCursor other) {
+        return txid != other.txid ? txid < other.txid : seq < other.seq;
+    }
+
+    // Кодирует курсор в токен для ответа клиенту
+    public String encode() {
+        String raw = txid + SEPARATOR + seq;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Восстанавливает курсор из токена, полученного от клиента
+    public static ChangeFeedCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new ChangeFeedCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Некорректная позиция ленты изменений: " + token);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.crime.crimeproject.pagination;
+
+import com.crime.crimeproject.exception.ValidationException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+// Позиция keyset-пагинации по (date_crime, id); наружу отдаётся как непрозрачный токен
+@Data
+@AllArgsConstructor
+public class JournalCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDate dateCrime;
+    private UUID id;
+
+    // Курсор, указывающий на переданную запись
+    public static JournalCursor of(Date dateCrime, UUID id) {
+        return new JournalCursor(new java.sql.Date(dateCrime.getTime()).toLocalDate(), id);
+    }
+
+    // Кодирует курсор в токен для ответа клиенту
+    public String encode() {
+        String raw = dateCrime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Восстанавливает курсор из токена, полученного от клиента
+    public static JournalCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new JournalCursor(LocalDate.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Некорректный курсор пагинации: " + token);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.crime.crimeproject.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Версии коллекций, общие для всех экземпляров: число зафиксированных операторов записи (changeset 24)
+@Repository
+@RequiredArgsConstructor
+public class CollectionVersionRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Версия каждой коллекции одним снимком: сжатые записи плюс еще не сжатые
+    public Map<String, Long> findVersions() {
+        String sql = "SELECT v.collection, v.compacted_writes + " +
+                     "(SELECT count(*) FROM crime_collection_writes w WHERE w.collection = v.collection) AS version " +
+                     "FROM crime_collection_versions v";
+        Map<String, Long> versions = new HashMap<>();
+        namedParameterJdbcTemplate.query(sql, Map.of(),
+                (RowCallbackHandler) rs -> versions.put(rs.getString("collection"), rs.getLong("version")));
+        return versions;
+    }
+
+    // Переносит видимые записи в счетчик одним оператором: версии при этом не меняются
+    public void compact() {
+        String sql = "WITH compacted AS (DELETE FROM crime_collection_writes RETURNING collection) " +
+                     "UPDATE crime_collection_versions v SET compacted_writes = v.compacted_writes + c.writes " +
+                     "FROM (SELECT collection, count(*) AS writes FROM compacted GROUP BY collection) c " +
+                     "WHERE v.collection = c.collection";
+        namedParameterJdbcTemplate.update(sql, new HashMap<>());
+    }
+
+}
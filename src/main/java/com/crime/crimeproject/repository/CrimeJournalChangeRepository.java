@@ -0,0 +1,121 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.dto.ChangeOperation;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.CrimeJournalChange;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+// Чтение журнала изменений, который заполняют триггеры на crime_journal (changeset 17)
+@Repository
+@RequiredArgsConstructor
+public class CrimeJournalChangeRepository {
+
+    private static final RowMapper<CrimeJournalChange> CHANGE_ROW_MAPPER = (rs, rowNum) -> new CrimeJournalChange(
+            rs.getLong(1),
+            Long.parseLong(rs.getString(2)),
+            ChangeOperation.valueOf(rs.getString(3)),
+            rs.getObject(4, OffsetDateTime.class).toInstant(),
+            new CrimeJournal(
+                    rs.getObject(5, UUID.class),
+                    rs.getString(6),
+                    rs.getDate(7),
+                    rs.getBoolean(8),
+                    rs.getObject(9, UUID.class)),
+            rs.getObject(10, UUID.class));
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Возвращает изменения после позиции after в порядке (txid, seq). Берутся только транзакции младше xmin
+    // текущего снимка: все они уже завершены, и ни одна новая фиксация не окажется позади выданной позиции
+    public List<CrimeJournalChange> findAfter(ChangeFeedCursor after, int limit) {
+        String sql = "SELECT seq, txid::text, operation, changed_at, journal_id, description, date_crime, is_closed, profile_id, " +
+                     "       previous_profile_id " +
+                     "FROM crime_journal_changes " +
+                     "WHERE (txid, seq) > (CAST(:afterTxid AS xid8), :afterSeq) " +
+                     "AND txid < pg_snapshot_xmin(pg_current_snapshot()) " +
+                     "ORDER BY txid, seq " +
+                     "LIMIT :limit";
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterTxid", Long.toString(after.getTxid()));
+        params.put("afterSeq", after.getSeq());
+        params.put("limit", limit);
+        return namedParameterJdbcTemplate.query(sql, params, CHANGE_ROW_MAPPER);
+    }
+
+    // То же для одного профиля: изменения его записей, включая ушедшие от него к другому профилю.
+    // Индекса по профилю нет: просматриваются все изменения после after, поэтому вызывается только
+    // для недавней позиции (переподключение подписчика)
+    public List<CrimeJournalChange> findAfterForProfile(ChangeFeedCursor after, UUID profileId, int limit) {
+        String sql = "SELECT seq, txid::text, operation, changed_at, journal_id, description, date_crime, is_closed, profile_id, " +
+                     "       previous_profile_id " +
+                     "FROM crime_journal_changes " +
+                     "WHERE (txid, seq) > (CAST(:afterTxid AS xid8), :afterSeq) " +
+                     "AND txid < pg_snapshot_xmin(pg_current_snapshot()) " +
+                     "AND (profile_id = :profileId OR previous_profile_id = :profileId) " +
+                     "ORDER BY txid, seq " +
+                     "LIMIT :limit";
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("afterTxid", Long.toString(after.getTxid()));
+        params.put("afterSeq", after.getSeq());
+        params.put("profileId", profileId);
+        params.put("limit", limit);
+        return namedParameterJdbcTemplate.query(sql, params, CHANGE_ROW_MAPPER);
+    }
+
+    // Позиция последнего изменения завершенных транзакций; пусто — лента пуста
+    public Optional<ChangeFeedCursor> findLatestPosition() {
+        String sql = "SELECT txid::text, seq " +
+                     "FROM crime_journal_changes " +
+                     "WHERE txid < pg_snapshot_xmin(pg_current_snapshot()) " +
+                     "ORDER BY txid DESC, seq DESC " +
+                     "LIMIT 1";
+
+        return namedParameterJdbcTemplate.query(sql, (rs, rowNum) -> new ChangeFeedCursor(Long.parseLong(rs.getString(1)), rs.getLong(2)))
+                .stream()
+                .findFirst();
+    }
+
+    // Наибольшая позиция, удаленная по сроку хранения (START — еще ничего не удалялось)
+    public ChangeFeedCursor findPurgedPosition() {
+        String sql = "SELECT txid::text, seq FROM crime_journal_changes_purged";
+
+        return namedParameterJdbcTemplate.queryForObject(sql, Map.of(),
+                (rs, rowNum) -> new ChangeFeedCursor(Long.parseLong(rs.getString(1)), rs.getLong(2)));
+    }
+
+    // Удаляет не больше batchSize изменений старше cutoff и в том же операторе сдвигает отметку удаленной позиции,
+    // возвращает число удаленных
+    public int deleteOlderThan(Instant cutoff, int batchSize) {
+        String sql = "WITH deleted AS (" +
+                     "    DELETE FROM crime_journal_changes " +
+                     "    WHERE seq IN (SELECT seq FROM crime_journal_changes WHERE changed_at < :cutoff LIMIT :batchSize) " +
+                     "    RETURNING txid, seq), " +
+                     "latest AS (SELECT txid, seq FROM deleted ORDER BY txid DESC, seq DESC LIMIT 1), " +
+                     "marked AS (" +
+                     "    UPDATE crime_journal_changes_purged p SET txid = latest.txid, seq = latest.seq " +
+                     "    FROM latest WHERE (latest.txid, latest.seq) > (p.txid, p.seq)) " +
+                     "SELECT count(*) FROM deleted";
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("cutoff", OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC));
+        params.put("batchSize", batchSize);
+        Integer deleted = namedParameterJdbcTemplate.queryForObject(sql, params, Integer.class);
+        return deleted == null ? 0 : deleted;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.dto.PartitionDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Обслуживание секций crime_journal через функции из changeset 15 (отключение — в редакции changeset 20)
+@Repository
+@RequiredArgsConstructor
+public class CrimeJournalPartitionRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Создает недостающие годовые секции за годы fromYear..toYear, возвращает число созданных
+    public int ensurePartitions(int fromYear, int toYear) {
+        String sql = "SELECT crime_journal_ensure_partitions(:fromYear, :toYear)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("fromYear", fromYear);
+        params.put("toYear", toYear);
+        Integer created = namedParameterJdbcTemplate.queryForObject(sql, params, Integer.class);
+        return created == null ? 0 : created;
+    }
+
+    // Отключает годовую секцию, ожидая блокировку не дольше waitLock; пусто — такой секции нет.
+    // При превышении ожидания выбрасывается CannotAcquireLockException
+    public Optional<Long> detachPartition(int year, Duration waitLock) {
+        String sql = "SELECT crime_journal_detach_partition(:year, :waitLock::interval)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("year", year);
+        params.put("waitLock", waitLock.toMillis() + " milliseconds");
+        return Optional.ofNullable(namedParameterJdbcTemplate.queryForObject(sql, params, Long.class));
+    }
+
+    // Секции журнала по порядку границ
+    public List<PartitionDTO> findAll() {
+        String sql = "SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bounds, " +
+                     "       greatest(c.reltuples, 0)::bigint AS estimated_rows " +
+                     "FROM pg_inherits i " +
+                     "JOIN pg_class c ON c.oid = i.inhrelid " +
+                     "WHERE i.inhparent = 'crime_journal'::regclass " +
+                     "ORDER BY c.relname";
+
+        return namedParameterJdbcTemplate.query(sql, (rs, rowNum) -> PartitionDTO.builder()
+                .name(rs.getString("name"))
+                .bounds(rs.getString("bounds"))
+                .estimatedRows(rs.getLong("estimated_rows"))
+                .build());
+    }
+
+}
@@ -1,152 +1,282 @@
 package com.crime.crimeproject.repository;
 
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
 import com.crime.crimeproject.entity.CrimeJournal;
-import lombok.RequiredArgsConstructor;
-import org.springframework.dao.EmptyResultDataAccessException;
+import com.crime.crimeproject.metrics.RepositoryCacheHit;
+import com.crime.crimeproject.pagination.JournalCursor;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.SortDirection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Statement;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Repository
-@RequiredArgsConstructor
 public class CrimeJournalRepository {
 
+    // Уникальность атрибутов гарантирует индекс uq_crime_journal_attributes: дубликат просто не вставляется
+    private static final String INSERT_SQL = "INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) " +
+            "VALUES (:id, :description, :dateCrime, :isClosed, :profileId) " +
+            "ON CONFLICT (description, date_crime, is_closed, profile_id) DO NOTHING";
+    // Условие по ID: дата записи берется по первичному ключу crime_journal_ids, и во время выполнения
+    // PostgreSQL отсекает все секции журнала, кроме одной (по одному id он проверял бы индекс каждой секции)
+    private static final String WHERE_ID = "WHERE id = :id AND date_crime = (SELECT date_crime FROM crime_journal_ids WHERE id = :id)";
+    private static final String UPDATE_SQL = "UPDATE crime_journal SET " +
+            "description = :description, " +
+            "date_crime = :dateCrime, " +
+            "is_closed = :isClosed, " +
+            "profile_id = :profileId " +
+            WHERE_ID;
+    // Порядок колонок фиксирован: мапперы читают их по номеру, а не по имени
+    private static final String SELECT_COLUMNS = "SELECT id, description, date_crime, is_closed, profile_id ";
+
+    // Мапперы без состояния — по одному экземпляру на приложение (пакетные: их замеряет RowMapperBenchmark)
+    static final RowMapper<CrimeJournal> CRIME_JOURNAL_ROW_MAPPER = (rs, rowNum) -> new CrimeJournal(
+            rs.getObject(1, UUID.class),
+            rs.getString(2),
+            rs.getDate(3),
+            rs.getBoolean(4),
+            rs.getObject(5, UUID.class));
+    // Списки сразу собираются в DTO, минуя промежуточную сущность (замеряет ListingPathBenchmark). Страница списка
+    // не больше MAX_PAGE_SIZE строк и собирается целиком: nextCursor известен только после чтения лишней строки,
+    // а формат ответа (JSON, Smile, CBOR) выбирают конвертеры MVC. Построчно в JsonGenerator пишет только выгрузка
+    static final RowMapper<CrimeJournalDTO> CRIME_JOURNAL_DTO_ROW_MAPPER = (rs, rowNum) -> new CrimeJournalDTO(
+            rs.getObject(1, UUID.class),
+            rs.getString(2),
+            rs.getDate(3),
+            rs.getBoolean(4),
+            rs.getObject(5, UUID.class));
+
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final CrimeJournalCache crimeJournalCache;
+    // Отдельный шаблон с fetch size: PostgreSQL читает результат серверным курсором порциями
+    private final NamedParameterJdbcTemplate exportJdbcTemplate;
 
-    // Сохраняет новую запись в журнале преступлений в БД
+    public CrimeJournalRepository(NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                  CrimeJournalCache crimeJournalCache,
+                                  @Value("${crime.journal.export.fetch-size:1000}") int exportFetchSize) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.crimeJournalCache = crimeJournalCache;
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(namedParameterJdbcTemplate.getJdbcTemplate().getDataSource());
+        jdbcTemplate.setFetchSize(exportFetchSize);
+        this.exportJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // Сохраняет новую запись в журнале преступлений в БД, возвращает false, если такая запись уже есть
     public boolean save(CrimeJournal crimeJournal) {
-        String sql = "INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) " +
-                "VALUES (:id, :description, :dateCrime, :isClosed, :profileId)";
-        Map<String, Object> params = new HashMap<>();
-        params.put("id", crimeJournal.getId());
-        params.put("description", crimeJournal.getDescription());
-        params.put("dateCrime", crimeJournal.getDateCrime());
-        params.put("isClosed", crimeJournal.getIsClosed());
-        params.put("profileId", crimeJournal.getProfileId());
-        return namedParameterJdbcTemplate.update(sql, params) > 0;
+        boolean saved = !namedParameterJdbcTemplate.queryForList(INSERT_SQL + " RETURNING id", toParams(crimeJournal), UUID.class).isEmpty();
+        if (saved) {
+            crimeJournalCache.put(crimeJournal);
+        }
+        return saved;
     }
 
-    // Возвращает запись журнала по ID, если она существует
+    // Выполнилась ли строка батча: драйвер может вернуть SUCCESS_NO_INFO вместо числа строк — это тоже успех
+    public static boolean isApplied(int count) {
+        return count > 0 || count == Statement.SUCCESS_NO_INFO;
+    }
+
+    // Сохраняет пачку записей одним JDBC-батчем, возвращает число вставленных строк по каждой записи (0 — дубликат)
+    public int[] saveAll(List<CrimeJournal> crimeJournals) {
+        int[] counts = namedParameterJdbcTemplate.batchUpdate(INSERT_SQL, toBatchParams(crimeJournals));
+        crimeJournalCache.evictAll(crimeJournals.stream().map(CrimeJournal::getId).collect(Collectors.toList()));
+        return counts;
+    }
+
+    // Возвращает запись журнала по ID, если она существует (сначала в кэше, включая отрицательные записи)
     public Optional<CrimeJournal> findById(UUID id) {
-        String sql = "SELECT id, description, date_crime, is_closed, profile_id " +
+        Optional<CrimeJournal> cached = crimeJournalCache.getIfPresent(id);
+        if (cached != null) {
+            RepositoryCacheHit.mark();
+            return cached;
+        }
+        long stamp = crimeJournalCache.loadStamp(id);
+
+        String sql = SELECT_COLUMNS +
                      "FROM crime_journal " +
-                     "WHERE id = :id";
+                     WHERE_ID;
 
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
-        try {
-            CrimeJournal journal = namedParameterJdbcTemplate.queryForObject(sql, params, getCrimeJournalRowMapper());
-            return Optional.ofNullable(journal);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();  // Возвращает пустой Optional, если запись не найдена
+        // query вместо queryForObject: отсутствие записи — обычный пустой список, а не исключение
+        List<CrimeJournal> journals = namedParameterJdbcTemplate.query(sql, params, CRIME_JOURNAL_ROW_MAPPER);
+        if (journals.isEmpty()) {
+            crimeJournalCache.putMissing(id, stamp);
+            return Optional.empty();
         }
+        crimeJournalCache.putLoaded(journals.get(0), stamp);
+        return Optional.of(journals.get(0));
     }
 
-    // Ищет записи по описанию
-    public List<CrimeJournal> findByDescription(String query) {
-        String sql = "SELECT id, description, date_crime, is_closed, profile_id " +
+    // Ищет записи по описанию (ILIKE обслуживается триграммным GIN-индексом),
+    // наиболее похожие на запрос записи возвращаются первыми
+    public List<CrimeJournalDTO> findByDescription(String query, int limit, int offset) {
+        String sql = SELECT_COLUMNS +
                      "FROM crime_journal " +
-                     "WHERE description ILIKE :description";
+                     "WHERE description ILIKE :description " +
+                     "ORDER BY word_similarity(:query, description) DESC, date_crime DESC, id DESC " +
+                     "LIMIT :limit OFFSET :offset";
 
         Map<String, Object> params = new HashMap<>();
-        params.put("description", "%" + query + "%");
-        return namedParameterJdbcTemplate.query(sql, params, getCrimeJournalRowMapper());
+        params.put("description", "%" + escapeLike(query) + "%");
+        params.put("query", query);
+        params.put("limit", limit);
+        params.put("offset", offset);
+        return namedParameterJdbcTemplate.query(sql, params, CRIME_JOURNAL_DTO_ROW_MAPPER);
     }
 
-    // Возвращает все записи из журнала
-    public List<CrimeJournal> findAll() {
-        String sql = "SELECT id, description, date_crime, is_closed, profile_id " +
-                     "FROM crime_journal";
+    // Возвращает страницу записей журнала (keyset по date_crime, id в заданном направлении)
+    public List<CrimeJournalDTO> findPage(CrimeJournalFilter filter, JournalCursor after, int limit, SortDirection direction) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
 
-        return namedParameterJdbcTemplate.query(sql, getCrimeJournalRowMapper());
-    }
+        if (filter.getIsClosed() != null) {
+            conditions.add("is_closed = :isClosed");
+            params.put("isClosed", filter.getIsClosed());
+        }
+        if (filter.getProfileId() != null) {
+            conditions.add("profile_id = :profileId");
+            params.put("profileId", filter.getProfileId());
+        }
+        if (filter.getFrom() != null) {
+            conditions.add("date_crime >= :from");
+            params.put("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            conditions.add("date_crime <= :to");
+            params.put("to", filter.getTo());
+        }
+        if (after != null) {
+            // Отдельное условие на date_crime (<= или >=) позволяет отсечь секции: по сравнению кортежей PostgreSQL их не отсекает
+            conditions.add("date_crime " + direction.getCursorOperator() + "= :cursorDate");
+            conditions.add("(date_crime, id) " + direction.getCursorOperator() + " (:cursorDate, :cursorId)");
+            params.put("cursorDate", after.getDateCrime());
+            params.put("cursorId", after.getId());
+        }
 
-    // Возвращает все записи журнала, связанные с указанным ID профиля юзера
-    public List<CrimeJournal> findByProfileId(UUID profileId) {
-        String sql = "SELECT id, description, date_crime, is_closed, profile_id " +
+        String sql = SELECT_COLUMNS +
                      "FROM crime_journal " +
-                     "WHERE profile_id = :profileId";
+                     (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ") +
+                     "ORDER BY date_crime " + direction.getSql() + ", id " + direction.getSql() + " " +
+                     "LIMIT :limit";
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("profileId", profileId);
-        return namedParameterJdbcTemplate.query(sql, params, getCrimeJournalRowMapper());
+        params.put("limit", limit);
+        return namedParameterJdbcTemplate.query(sql, params, CRIME_JOURNAL_DTO_ROW_MAPPER);
     }
 
-    // Поиск записи по всем атрибутам
-    public Optional<CrimeJournal> findByAllAttributes(CrimeJournal crimeJournal) {
-        String sql = "SELECT id, description, date_crime, is_closed, profile_id " +
-                "FROM crime_journal " +
-                "WHERE description = :description AND date_crime = :dateCrime " +
-                "AND is_closed = :isClosed AND profile_id = :profileId";
-
-        Map<String, Object> params = new HashMap<>();
-        params.put("description", crimeJournal.getDescription());
-        params.put("dateCrime", crimeJournal.getDateCrime());
-        params.put("isClosed", crimeJournal.getIsClosed());
-        params.put("profileId", crimeJournal.getProfileId());
+    // Построчно передает все записи журнала в обработчик, не накапливая их в памяти.
+    // Курсор PostgreSQL работает только внутри транзакции, поэтому вызывать из @Transactional метода
+    public void streamAll(RowCallbackHandler rowCallbackHandler) {
+        String sql = SELECT_COLUMNS +
+                     "FROM crime_journal";
 
-        try {
-            CrimeJournal journal = namedParameterJdbcTemplate.queryForObject(sql, params, getCrimeJournalRowMapper());
-            return Optional.ofNullable(journal);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        exportJdbcTemplate.query(sql, Collections.emptyMap(), rowCallbackHandler);
     }
 
     // Обновляет существующую запись в журнале
     public boolean update(CrimeJournal crimeJournal) {
-        String sql = "UPDATE crime_journal SET " +
-                "description = :description, " +
-                "date_crime = :dateCrime, " +
-                "is_closed = :isClosed, " +
-                "profile_id = :profileId " +
-                "WHERE id = :id";
-
-        Map<String, Object> params = new HashMap<>();
-        params.put("id", crimeJournal.getId());
-        params.put("description", crimeJournal.getDescription());
-        params.put("dateCrime", crimeJournal.getDateCrime());
-        params.put("isClosed", crimeJournal.getIsClosed());
-        params.put("profileId", crimeJournal.getProfileId());
+        try {
+            return namedParameterJdbcTemplate.update(UPDATE_SQL, toParams(crimeJournal)) > 0;
+        } finally {
+            crimeJournalCache.evict(crimeJournal.getId());
+        }
+    }
 
-        return namedParameterJdbcTemplate.update(sql, params) > 0;
+    // Обновляет пачку записей одним JDBC-батчем, возвращает число обновленных строк по каждой записи
+    public int[] updateAll(List<CrimeJournal> crimeJournals) {
+        try {
+            return namedParameterJdbcTemplate.batchUpdate(UPDATE_SQL, toBatchParams(crimeJournals));
+        } finally {
+            crimeJournalCache.evictAll(crimeJournals.stream().map(CrimeJournal::getId).collect(Collectors.toList()));
+        }
     }
 
     // Удаляет запись из журнала по ID
     public boolean deleteById(UUID id) {
-        String sql = "DELETE FROM crime_journal WHERE id = :id";
+        String sql = "DELETE FROM crime_journal " + WHERE_ID;
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
-        return namedParameterJdbcTemplate.update(sql, params) > 0;
+        boolean deleted = namedParameterJdbcTemplate.update(sql, params) > 0;
+        crimeJournalCache.evict(id);
+        return deleted;
+    }
+
+    // Удаляет записи с указанными ID одним запросом, возвращает ID фактически удаленных записей
+    public Set<UUID> deleteAllByIds(Collection<UUID> ids) {
+        String sql = "DELETE FROM crime_journal j USING crime_journal_ids i " +
+                     "WHERE i.id = ANY(:ids) AND j.id = i.id AND j.date_crime = i.date_crime " +
+                     "RETURNING j.id";
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", new SqlArrayValue("uuid", ids.toArray()));
+        Set<UUID> deleted = new HashSet<>(namedParameterJdbcTemplate.queryForList(sql, params, UUID.class));
+        crimeJournalCache.evictAll(deleted);
+        return deleted;
     }
 
     // Удаляет все записи журнала, связанные с указанным ID профиля юзера
+    // (ID удаленных записей возвращаются, чтобы точечно убрать их из кэша)
     public int deleteByProfileId(UUID profileId) {
-        String sql = "DELETE FROM crime_journal WHERE profile_id = :profileId";
+        String sql = "DELETE FROM crime_journal WHERE profile_id = :profileId RETURNING id";
         Map<String, Object> params = new HashMap<>();
         params.put("profileId", profileId);
-        return namedParameterJdbcTemplate.update(sql, params);
+        List<UUID> deleted = namedParameterJdbcTemplate.queryForList(sql, params, UUID.class);
+        crimeJournalCache.evictAll(deleted);
+        return deleted.size();
     }
 
-    // Проверяет существует ли запись по заданному ID
+    // Проверяет существует ли запись по заданному ID (сначала в кэше, затем по первичному ключу crime_journal_ids —
+    // без обращения к секциям журнала)
     public boolean existsById(UUID id) {
-        String sql = "SELECT COUNT(*) FROM crime_journal WHERE id = :id";
+        Optional<CrimeJournal> cached = crimeJournalCache.getIfPresent(id);
+        if (cached != null) {
+            RepositoryCacheHit.mark();
+            return cached.isPresent();
+        }
+
+        String sql = "SELECT EXISTS (SELECT 1 FROM crime_journal_ids WHERE id = :id)";
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
-        Integer count = namedParameterJdbcTemplate.queryForObject(sql, params, Integer.class);
-        return count != null && count > 0;
-    }
-
-    // Возвращает маппер для преобразования данных из БД в объект CrimeJournal
-    private RowMapper<CrimeJournal> getCrimeJournalRowMapper() {
-        return (rs, rowNum) -> CrimeJournal.builder()
-                .id(rs.getObject("id", UUID.class))
-                .description(rs.getString("description"))
-                .dateCrime(rs.getDate("date_crime"))
-                .isClosed(rs.getBoolean("is_closed"))
-                .profileId(rs.getObject("profile_id", UUID.class))
-                .build();
+        return Boolean.TRUE.equals(namedParameterJdbcTemplate.queryForObject(sql, params, Boolean.class));
+    }
+
+    // Возвращает те из переданных ID, для которых есть запись в журнале (по crime_journal_ids, без обращения к секциям)
+    public Set<UUID> findExistingIds(Collection<UUID> ids) {
+        String sql = "SELECT id FROM crime_journal_ids WHERE id = ANY(:ids)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", new SqlArrayValue("uuid", ids.toArray()));
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(sql, params, UUID.class));
+    }
+
+    private Map<String, Object> toParams(CrimeJournal crimeJournal) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", crimeJournal.getId());
+        params.put("description", crimeJournal.getDescription());
+        params.put("dateCrime", crimeJournal.getDateCrime());
+        params.put("isClosed", crimeJournal.getIsClosed());
+        params.put("profileId", crimeJournal.getProfileId());
+        return params;
+    }
+
+    private SqlParameterSource[] toBatchParams(List<CrimeJournal> crimeJournals) {
+        SqlParameterSource[] batchParams = new SqlParameterSource[crimeJournals.size()];
+        for (int i = 0; i < batchParams.length; i++) {
+            batchParams[i] = new MapSqlParameterSource(toParams(crimeJournals.get(i)));
+        }
+        return batchParams;
+    }
+
+    // Экранирует спецсимволы LIKE, чтобы они искались буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.entity.CrimeJournalStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Чтение сводной таблицы, которую триггеры на crime_journal поддерживают в актуальном состоянии
+@Repository
+@RequiredArgsConstructor
+public class CrimeJournalStatsRepository {
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // Возвращает строки сводки с учетом необязательных фильтров по профилю и году
+    public List<CrimeJournalStats> find(UUID profileId, Integer year) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        conditions.add("crime_count <> 0");
+
+        if (profileId != null) {
+            conditions.add("profile_id = :profileId");
+            params.put("profileId", profileId);
+        }
+        if (year != null) {
+            conditions.add("month >= :yearStart AND month < :yearEnd");
+            params.put("yearStart", LocalDate.of(year, 1, 1));
+            params.put("yearEnd", LocalDate.of(year + 1, 1, 1));
+        }
+
+        String sql = "SELECT profile_id, month, is_closed, crime_count " +
+                     "FROM crime_journal_stats " +
+                     "WHERE " + String.join(" AND ", conditions);
+
+        return namedParameterJdbcTemplate.query(sql, params, getStatsRowMapper());
+    }
+
+    // Маппер для преобразования ResultSet в объект CrimeJournalStats
+    private RowMapper<CrimeJournalStats> getStatsRowMapper() {
+        return (rs, rowNum) -> CrimeJournalStats.builder()
+                .profileId(rs.getObject("profile_id", UUID.class))
+                .month(rs.getObject("month", LocalDate.class))
+                .isClosed(rs.getBoolean("is_closed"))
+                .crimeCount(rs.getLong("crime_count"))
+                .build();
+    }
+
+}
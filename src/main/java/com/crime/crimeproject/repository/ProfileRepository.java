@@ -1,39 +1,65 @@
 package com.crime.crimeproject.repository;
 
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.cache.ProfileCache;
 import com.crime.crimeproject.entity.Profile;
+import com.crime.crimeproject.metrics.RepositoryCacheHit;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Array;
+import java.sql.SQLException;
+
 import java.util.*;
 
 @Repository
 @RequiredArgsConstructor
 public class ProfileRepository {
 
+    // Порядок колонок фиксирован: маппер читает их по номеру, а не по имени
+    private static final String SELECT_COLUMNS = "SELECT id, login, password, email ";
+
+    // Маппер без состояния — один экземпляр на приложение (пакетный: его замеряет RowMapperBenchmark)
+    static final RowMapper<Profile> PROFILE_ROW_MAPPER = (rs, rowNum) -> new Profile(
+            rs.getObject(1, UUID.class),
+            rs.getString(2),
+            rs.getString(3),
+            rs.getString(4));
+
     private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final ProfileCache profileCache;
+    private final CrimeJournalCache crimeJournalCache;
 
     // Сохранение нового профиля в базу данных
     public boolean save(Profile profile) {
         String sql = "INSERT INTO profile (id, login, password, email) " +
                      "VALUES (:id, :login, :password, :email)";
 
-        return executeUpdate(profile, sql);
+        return executeUpdateAndCache(profile, sql);
     }
 
-    // Поиск профиля по ID
+    // Поиск профиля по ID (сначала в кэше)
     public Optional<Profile> findById(UUID id) {
-        String sql = "SELECT id, login, password, email " +
+        Optional<Profile> cached = profileCache.getById(id);
+        if (cached.isPresent()) {
+            RepositoryCacheHit.mark();
+            return cached;
+        }
+        long stamp = profileCache.loadStamp();
+
+        String sql = SELECT_COLUMNS +
                      "FROM profile " +
                      "WHERE id = :id";
 
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
         try {
-            Profile profile = namedParameterJdbcTemplate.queryForObject(sql, params, getProfileRowMapper());
-            return Optional.ofNullable(profile);
+            Profile profile = namedParameterJdbcTemplate.queryForObject(sql, params, PROFILE_ROW_MAPPER);
+            return cache(Optional.ofNullable(profile), stamp);
         } catch (EmptyResultDataAccessException ex) {
             return Optional.empty();
         }
@@ -41,8 +67,8 @@ public class ProfileRepository {
 
     // Поиск всех профилей
     public List<Profile> findAll() {
-        String sql = "SELECT id, login, password, email FROM profile";
-        return namedParameterJdbcTemplate.query(sql, getProfileRowMapper());
+        String sql = SELECT_COLUMNS + "FROM profile";
+        return namedParameterJdbcTemplate.query(sql, PROFILE_ROW_MAPPER);
     }
 
     // Обновляет существующий профиль
@@ -51,7 +77,7 @@ public class ProfileRepository {
                      "SET login = :login, password = :password, email = :email " +
                      "WHERE id = :id";
 
-        return executeUpdate(profile, sql);
+        return executeUpdateAndCache(profile, sql);
     }
 
     // Удаление профиля по ID
@@ -59,61 +85,137 @@ public class ProfileRepository {
         String sql = "DELETE FROM profile WHERE id = :id";
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
-        return namedParameterJdbcTemplate.update(sql, params) > 0;
+        try {
+            return namedParameterJdbcTemplate.update(sql, params) > 0;
+        } finally {
+            // После записи: удаленный до нее профиль параллельное чтение успело бы вернуть в кэш
+            profileCache.evict(id);
+        }
+    }
+
+    // Удаляет профиль вместе со всеми его записями журнала одним оператором. Проверка внешнего ключа
+    // выполняется в конце оператора, когда записи журнала уже удалены. Пустой результат — профиля нет.
+    public OptionalInt deleteWithJournalById(UUID id) {
+        String sql = "WITH deleted_journal AS (" +
+                     "    DELETE FROM crime_journal WHERE profile_id = :id RETURNING id" +
+                     "), deleted_profile AS (" +
+                     "    DELETE FROM profile WHERE id = :id RETURNING id" +
+                     ") " +
+                     "SELECT EXISTS (SELECT 1 FROM deleted_profile) AS profile_deleted, " +
+                     "       ARRAY(SELECT id FROM deleted_journal) AS journal_ids";
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+
+        List<UUID> journalIds = new ArrayList<>();
+        Boolean profileDeleted;
+        try {
+            profileDeleted = namedParameterJdbcTemplate.queryForObject(sql, params, (rs, rowNum) -> {
+                journalIds.addAll(toUuidList(rs.getArray("journal_ids")));
+                return rs.getBoolean("profile_deleted");
+            });
+        } finally {
+            profileCache.evict(id);
+        }
+        // ID удаленных записей нужны, чтобы точечно убрать их из кэша журнала
+        crimeJournalCache.evictAll(journalIds);
+        return Boolean.TRUE.equals(profileDeleted) ? OptionalInt.of(journalIds.size()) : OptionalInt.empty();
     }
 
-    // Поиск профиля по логину
+    // Поиск профиля по логину (сначала в кэше)
     public Optional<Profile> findByLogin(String login) {
-        String sql = "SELECT id, login, password, email " +
+        Optional<Profile> cached = profileCache.getByLogin(login);
+        if (cached.isPresent()) {
+            RepositoryCacheHit.mark();
+            return cached;
+        }
+        long stamp = profileCache.loadStamp();
+
+        String sql = SELECT_COLUMNS +
                      "FROM profile " +
                      "WHERE login = :login";
 
         Map<String, Object> params = new HashMap<>();
         params.put("login", login);
-        List<Profile> profiles = namedParameterJdbcTemplate.query(sql, params, getProfileRowMapper());
-        return profiles.stream().findFirst();
+        List<Profile> profiles = namedParameterJdbcTemplate.query(sql, params, PROFILE_ROW_MAPPER);
+        return cache(profiles.stream().findFirst(), stamp);
     }
 
-    // Поиск профиля по почте
+    // Поиск профиля по почте (сначала в кэше)
     public Optional<Profile> findByEmail(String email) {
-        String sql = "SELECT id, login, password, email " +
+        Optional<Profile> cached = profileCache.getByEmail(email);
+        if (cached.isPresent()) {
+            RepositoryCacheHit.mark();
+            return cached;
+        }
+        long stamp = profileCache.loadStamp();
+
+        String sql = SELECT_COLUMNS +
                      "FROM profile " +
                      "WHERE email = :email";
 
         Map<String, Object> params = new HashMap<>();
         params.put("email", email);
-        List<Profile> profiles = namedParameterJdbcTemplate.query(sql, params, getProfileRowMapper());
-        return profiles.stream().findFirst();
+        List<Profile> profiles = namedParameterJdbcTemplate.query(sql, params, PROFILE_ROW_MAPPER);
+        return cache(profiles.stream().findFirst(), stamp);
     }
 
-    // Проверка существования профиля по ID
+    // Проверка существования профиля по ID. Загружает профиль целиком (по первичному ключу это так же дешево),
+    // чтобы последующие проверки обслуживались из кэша
     public boolean existsById(UUID id) {
-        String sql = "SELECT COUNT(*) FROM profile WHERE id = :id";
+        return findById(id).isPresent();
+    }
+
+    // Возвращает те из переданных ID, для которых существует профиль (в БД запрашиваются только отсутствующие в кэше)
+    public Set<UUID> findExistingIds(Collection<UUID> ids) {
+        Set<UUID> existing = new HashSet<>();
+        List<UUID> notCached = new ArrayList<>();
+        for (UUID id : ids) {
+            if (profileCache.getById(id).isPresent()) {
+                existing.add(id);
+            } else {
+                notCached.add(id);
+            }
+        }
+        if (notCached.isEmpty()) {
+            RepositoryCacheHit.mark();
+            return existing;
+        }
+
+        String sql = "SELECT id FROM profile WHERE id = ANY(:ids)";
         Map<String, Object> params = new HashMap<>();
-        params.put("id", id);
-        Integer count = namedParameterJdbcTemplate.queryForObject(sql, params, Integer.class);
-        return count != null && count > 0;
+        params.put("ids", new SqlArrayValue("uuid", notCached.toArray()));
+        existing.addAll(namedParameterJdbcTemplate.queryForList(sql, params, UUID.class));
+        return existing;
     }
 
-    private boolean executeUpdate(Profile profile, String sql) {
+    // Выполняет вставку или обновление и после успешной записи обновляет кэш
+    private boolean executeUpdateAndCache(Profile profile, String sql) {
         Map<String, Object> params = new HashMap<>();
         params.put("id", profile.getId());
         params.put("login", profile.getLogin());
         params.put("password", profile.getPassword());
         params.put("email", profile.getEmail());
 
-        return namedParameterJdbcTemplate.update(sql, params) > 0;
+        // При ошибке (например, нарушении уникальности) в кэше не должно остаться старой версии
+        profileCache.evict(profile.getId());
+        boolean updated = namedParameterJdbcTemplate.update(sql, params) > 0;
+        if (updated) {
+            profileCache.put(profile);
+        }
+        return updated;
     }
 
+    private static List<UUID> toUuidList(Array array) throws SQLException {
+        try {
+            return Arrays.asList((UUID[]) array.getArray());
+        } finally {
+            array.free();
+        }
+    }
 
-    // Маппер для преобразования ResultSet в объект Profile
-    private RowMapper<Profile> getProfileRowMapper() {
-        return (rs, rowNum) -> Profile.builder()
-                .id(rs.getObject("id", UUID.class))
-                .login(rs.getString("login"))
-                .password(rs.getString("password"))
-                .email(rs.getString("email"))
-                .build();
+    private Optional<Profile> cache(Optional<Profile> profile, long stamp) {
+        profile.ifPresent(it -> profileCache.putLoaded(it, stamp));
+        return profile;
     }
 
-}
+}
\ No newline at end of file
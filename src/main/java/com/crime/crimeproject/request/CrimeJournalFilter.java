@@ -0,0 +1,21 @@
+package com.crime.crimeproject.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Необязательные фильтры для постраничной выборки журнала (null — фильтр не применяется)
+@Data
+@Builder
+@AllArgsConstructor
+public class CrimeJournalFilter {
+
+    private Boolean isClosed;
+    private UUID profileId;
+    private LocalDate from;
+    private LocalDate to;
+
+}
@@ -0,0 +1,28 @@
+package com.crime.crimeproject.request;
+
+import com.crime.crimeproject.exception.ValidationException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Форматы потоковой выгрузки журнала
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    // Разбирает формат из параметра запроса без учета регистра
+    public static ExportFormat from(String value) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new ValidationException("Неподдерживаемый формат выгрузки: " + value);
+    }
+
+}
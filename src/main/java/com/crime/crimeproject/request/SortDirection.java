@@ -0,0 +1,28 @@
+package com.crime.crimeproject.request;
+
+import com.crime.crimeproject.exception.ValidationException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Направление сортировки журнала по дате преступления (при равных датах — по ID)
+@Getter
+@RequiredArgsConstructor
+public enum SortDirection {
+
+    ASC("ASC", ">"),
+    DESC("DESC", "<");
+
+    private final String sql;
+    private final String cursorOperator; // сравнение с курсором: следующая страница лежит дальше по порядку
+
+    // Разбирает направление из параметра запроса без учета регистра
+    public static SortDirection from(String value) {
+        for (SortDirection direction : values()) {
+            if (direction.name().equalsIgnoreCase(value)) {
+                return direction;
+            }
+        }
+        throw new ValidationException("Неподдерживаемое направление сортировки: " + value);
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.crime.crimeproject.request;
+
+import com.crime.crimeproject.annotation.DateRange;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import org.hibernate.validator.constraints.Length;
+
+import java.util.Date;
+import java.util.UUID;
+
+// Элемент пакетного обновления: ID записи и её новые атрибуты
+@Data
+@Builder
+@AllArgsConstructor
+public class UpdateCrimeJournalRequest {
+
+    @NotNull
+    private UUID id;
+
+    @NotEmpty
+    @Length(min = 4)
+    private String description;
+
+    @NotNull
+    @DateRange
+    private Date dateCrime;
+
+    @NotNull
+    private Boolean isClosed;
+
+    @NotNull
+    private UUID profileId;
+
+}
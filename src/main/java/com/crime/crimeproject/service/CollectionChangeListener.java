@@ -0,0 +1,199 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.cache.ProfileCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Слушает уведомления crime_collection_changed (триггеры журнала и профилей) и перечитывает версии коллекций
+// в CollectionVersionService: ETag любого экземпляра меняется после записи через любой другой.
+// По ID из уведомления удаляет записи из кэшей журнала и профилей; уведомление без ID (большой оператор)
+// и переподключение очищают кэш коллекции целиком — изменения за время без подписки неизвестны.
+// LISTEN держит соединение все время работы, поэтому оно открывается отдельно, а не берется из пула.
+// При обрыве ETag отключаются до переподключения (CollectionVersionService.listenerDisconnected)
+@Slf4j
+@Component
+public class CollectionChangeListener implements SmartLifecycle, MeterBinder {
+
+    static final String CHANNEL = "crime_collection_changed";
+
+    private final DataSourceProperties dataSourceProperties;
+    private final CollectionVersionService collectionVersionService;
+    private final CrimeJournalCache crimeJournalCache;
+    private final ProfileCache profileCache;
+    private final Duration pollTimeout;
+    private final Duration reconnectDelay;
+
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Connection connection;
+    private Thread listener;
+
+    public CollectionChangeListener(DataSourceProperties dataSourceProperties,
+                                    CollectionVersionService collectionVersionService,
+                                    CrimeJournalCache crimeJournalCache,
+                                    ProfileCache profileCache,
+                                    @Value("${crime.collection-version.listener.poll-timeout:10s}") Duration pollTimeout,
+                                    @Value("${crime.collection-version.listener.reconnect-delay:1s}") Duration reconnectDelay) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.collectionVersionService = collectionVersionService;
+        this.crimeJournalCache = crimeJournalCache;
+        this.profileCache = profileCache;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener = Thread.ofVirtual().name("collection-change-listener").start(this::listenLoop);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listener.interrupt();
+        closeQuietly(connection); // прерывает ожидание уведомлений на сокете
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Запускается раньше веб-сервера и останавливается после него
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crime.collection.listener.connected", this, it -> it.connected ? 1 : 0)
+                .description("Подписан ли экземпляр на уведомления об изменениях коллекций (иначе ETag не выдаются)")
+                .register(registry);
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                this.connection = connection;
+                listen(connection);
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Нет подписки на {}: ETag отключены до переподключения ({})", CHANNEL, e.getMessage());
+                }
+            } finally {
+                this.connection = null;
+                connected = false;
+                collectionVersionService.listenerDisconnected();
+            }
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        // Версии перечитываются и кэши очищаются уже после LISTEN: изменение, зафиксированное раньше, учтено здесь,
+        // а зафиксированное позже придет уведомлением
+        crimeJournalCache.invalidateAll();
+        profileCache.invalidateAll();
+        collectionVersionService.listenerConnected();
+        connected = true;
+
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+            if (notifications == null || notifications.length == 0) {
+                // Тишина: проверяем, что соединение живо, иначе полуоткрытый сокет молчал бы вечно
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                collectionVersionService.refreshIfUnknown();
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                changed(notification.getParameter());
+            }
+            // Одно прочтение версий на всю пачку уведомлений
+            collectionVersionService.refresh();
+        }
+    }
+
+    // payload — 'journal' или 'profile', за которым после двоеточия могут идти ID измененных строк через запятую
+    void changed(String payload) {
+        int separator = payload.indexOf(':');
+        String collection = separator < 0 ? payload : payload.substring(0, separator);
+        List<UUID> ids = separator < 0 ? List.of() : parseIds(payload.substring(separator + 1));
+        switch (collection) {
+            case CollectionVersionService.JOURNAL -> {
+                if (ids.isEmpty()) {
+                    crimeJournalCache.invalidateAll();
+                } else {
+                    crimeJournalCache.evictAll(ids);
+                }
+            }
+            case CollectionVersionService.PROFILE -> {
+                if (ids.isEmpty()) {
+                    profileCache.invalidateAll();
+                } else {
+                    ids.forEach(profileCache::evict);
+                }
+            }
+            default -> {
+                // неизвестная коллекция — уведомление от более новой версии схемы
+            }
+        }
+    }
+
+    // Нераспознанный ID означает, что payload пришел в незнакомом формате: тогда кэш очищается целиком
+    private static List<UUID> parseIds(String ids) {
+        List<UUID> parsed = new ArrayList<>();
+        for (String id : ids.split(",")) {
+            try {
+                parsed.add(UUID.fromString(id));
+            } catch (IllegalArgumentException e) {
+                return List.of();
+            }
+        }
+        return parsed;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // соединение и так закрывается при остановке
+        }
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.datasource.ReadConsistency;
+import com.crime.crimeproject.metrics.NotMetered;
+import com.crime.crimeproject.repository.CollectionVersionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Версии коллекций для условных GET (ETag / If-None-Match); контроллер сравнивает ETag до чтения из БД.
+// Версия берется из БД (CollectionVersionRepository) и одинакова на всех экземплярах, поэтому ETag,
+// выданный одним узлом, дает 304 и на другом. Перечитывается после записи этого экземпляра и по уведомлениям
+// об изменениях с любого узла (CollectionChangeListener). Пока слушатель не подключен или версии не удалось
+// прочитать, о новых записях узнать неоткуда, поэтому ETag не выдаются совсем.
+// Не замеряется: вызывается на каждом запросе, а awaitJournalChange ждет до таймаута long-poll
+@Slf4j
+@Service
+@NotMetered
+@RequiredArgsConstructor
+public class CollectionVersionService {
+
+    // Коллекции: они же payload уведомлений crime_collection_changed
+    public static final String JOURNAL = "journal";
+    public static final String PROFILE = "profile";
+
+    private final CollectionVersionRepository collectionVersionRepository;
+    private final AtomicLong journalVersion = new AtomicLong();
+    private final AtomicLong profileVersion = new AtomicLong();
+    private volatile boolean listening; // подключен ли CollectionChangeListener
+    private volatile boolean versionsKnown; // удалось ли прочитать версии после последнего изменения
+    // ReentrantLock, а не synchronized: ожидающие виртуальные потоки не занимают потоки-носители
+    private final ReentrantLock changeLock = new ReentrantLock();
+    private final Condition changed = changeLock.newCondition();
+
+    // Фиксирует изменение журнала преступлений этим экземпляром: версия перечитывается сразу,
+    // не дожидаясь уведомления, чтобы автор записи следующим же GET получил новые данные
+    public void journalChanged() {
+        refreshAfterCommit();
+    }
+
+    // Фиксирует изменение профилей этим экземпляром
+    public void profileChanged() {
+        refreshAfterCommit();
+    }
+
+    // Слушатель уведомлений подписался: изменения за время, пока его не было, уже учтены версиями в БД
+    public void listenerConnected() {
+        refresh();
+        listening = true;
+    }
+
+    // Слушатель потерял соединение: с этого момента ETag не выдаются
+    public void listenerDisconnected() {
+        listening = false;
+    }
+
+    // Перечитывает версии обеих коллекций: после уведомлений об изменениях с любого экземпляра.
+    // Версии только растут, поэтому более старое прочтение, завершившееся позже, их не откатывает.
+    // Ошибка БД не прерывает поток слушателя: ETag отключаются до следующего удачного прочтения
+    public void refresh() {
+        Map<String, Long> versions;
+        try {
+            versions = collectionVersionRepository.findVersions();
+        } catch (DataAccessException e) {
+            versionsKnown = false;
+            log.warn("Не удалось прочитать версии коллекций, ETag отключены: {}", e.getMessage());
+            return;
+        }
+        advance(journalVersion, versions.getOrDefault(JOURNAL, 0L));
+        advance(profileVersion, versions.getOrDefault(PROFILE, 0L));
+        versionsKnown = true;
+    }
+
+    // Повторяет прочтение, если последнее не удалось (слушатель вызывает его, пока уведомлений нет)
+    public void refreshIfUnknown() {
+        if (!versionsKnown) {
+            refresh();
+        }
+    }
+
+    // Переносит накопленные записи в счетчики версий, чтобы их подсчет оставался коротким
+    @Scheduled(cron = "${crime.collection-version.compact-cron:0 * * * * *}")
+    public void compact() {
+        collectionVersionRepository.compact();
+    }
+
+    // Текущая версия журнала: для ожидания следующего изменения в awaitJournalChange
+    public long journalVersion() {
+        return journalVersion.get();
+    }
+
+    // Текущая версия профилей
+    public long profileVersion() {
+        return profileVersion.get();
+    }
+
+    // Ждет, пока версия журнала отличается от seenVersion, не дольше timeout; true — журнал изменился
+    public boolean awaitJournalChange(long seenVersion, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        changeLock.lock();
+        try {
+            while (journalVersion.get() == seenVersion) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = changed.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+    // Текущий ETag коллекции журнала; null — ETag сейчас не выдается
+    @Nullable
+    public String journalETag() {
+        ReadConsistency.Route route = ReadConsistency.current();
+        return eTag(JOURNAL, route != null && route.replica() ? route.journalVersion() : journalVersion.get());
+    }
+
+    // Текущий ETag коллекции профилей; null — ETag сейчас не выдается
+    @Nullable
+    public String profileETag() {
+        ReadConsistency.Route route = ReadConsistency.current();
+        return eTag(PROFILE, route != null && route.replica() ? route.profileVersion() : profileVersion.get());
+    }
+
+    // Списки, которые прочитаются с реплики (маршрут запроса), получают ETag по версии, уже видной на реплике,
+    // а не по текущей: иначе отстающая реплика отдала бы старые данные с новым ETag
+    private String eTag(String collection, long visibleVersion) {
+        if (!listening || !versionsKnown) {
+            return null;
+        }
+        return "W/\"" + collection + "-" + visibleVersion + "\"";
+    }
+
+    // Внутри транзакции версия перечитывается только после её завершения: незафиксированные записи
+    // в версию не входят, а откат оставил бы версию прежней
+    private void refreshAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    refresh();
+                }
+            });
+        } else {
+            refresh();
+        }
+    }
+
+    private void advance(AtomicLong version, long current) {
+        if (version.getAndAccumulate(current, Math::max) >= current) {
+            return;
+        }
+        changeLock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            changeLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.dto.JournalChangeDTO;
+import com.crime.crimeproject.dto.PageDTO;
+import com.crime.crimeproject.entity.CrimeJournalChange;
+import com.crime.crimeproject.exception.GoneException;
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import com.crime.crimeproject.repository.CrimeJournalChangeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Лента изменений журнала для внешних систем: вместо перечитывания GET /journal они забирают
+// только изменения после своей позиции, при необходимости ожидая новые (долгий опрос)
+@Service
+public class CrimeJournalChangeFeedService {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 5000;
+    private static final int PURGE_BATCH_SIZE = 10000;
+
+    private final CrimeJournalChangeRepository crimeJournalChangeRepository;
+    private final CollectionVersionService collectionVersionService;
+    private final Duration maxWait;
+    private final Duration pollInterval;
+    private final Duration retention;
+
+    public CrimeJournalChangeFeedService(CrimeJournalChangeRepository crimeJournalChangeRepository,
+                                         CollectionVersionService collectionVersionService,
+                                         @Value("${crime.journal.changes.max-wait:30s}") Duration maxWait,
+                                         @Value("${crime.journal.changes.poll-interval:1s}") Duration pollInterval,
+                                         @Value("${crime.journal.changes.retention:7d}") Duration retention) {
+        this.crimeJournalChangeRepository = crimeJournalChangeRepository;
+        this.collectionVersionService = collectionVersionService;
+        this.maxWait = maxWait;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    // Возвращает до limit изменений после позиции since (null — с начала ленты). Если изменений нет,
+    // ждет их до waitSeconds секунд. nextCursor заполнен всегда: это позиция для следующего запроса.
+    // Позиция, после которой часть изменений уже удалена по сроку хранения, — 410: продолжить ленту без пропусков
+    // нельзя, потребитель должен перечитать журнал через GET /journal и начать ленту заново
+    public PageDTO<JournalChangeDTO> getChanges(String since, int limit, int waitSeconds) {
+        if (limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_BATCH_SIZE);
+        }
+        if (waitSeconds < 0 || waitSeconds > maxWait.toSeconds()) {
+            throw new ValidationException("Параметр wait должен быть от 0 до " + maxWait.toSeconds() + " секунд");
+        }
+
+        ChangeFeedCursor after = since == null ? ChangeFeedCursor.START : ChangeFeedCursor.decode(since);
+        if (since != null) {
+            checkRetained(after);
+        }
+        List<CrimeJournalChange> changes;
+        try {
+            changes = awaitChanges(after, limit, Duration.ofSeconds(waitSeconds));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            changes = List.of();
+        }
+        if (since != null) {
+            // Очистка могла пройти во время ожидания: отметка фиксируется вместе с удалением, поэтому
+            // если удаленные строки не попали в прочитанное, здесь отметка уже видна
+            checkRetained(after);
+        }
+
+        if (!changes.isEmpty()) {
+            CrimeJournalChange last = changes.get(changes.size() - 1);
+            after = new ChangeFeedCursor(last.getTxid(), last.getSeq());
+        }
+        return PageDTO.<JournalChangeDTO>builder()
+                .items(changes.stream().map(CrimeJournalChangeFeedService::toDTO).collect(Collectors.toList()))
+                .nextCursor(after.encode())
+                .build();
+    }
+
+    // Читает до limit изменений после позиции after; если их нет — ждет новые не дольше wait
+    List<CrimeJournalChange> awaitChanges(ChangeFeedCursor after, int limit, Duration wait) throws InterruptedException {
+        long deadline = System.nanoTime() + wait.toNanos();
+        while (true) {
+            // Версия запоминается до чтения, чтобы не пропустить изменение, зафиксированное между ними
+            long version = collectionVersionService.journalVersion();
+            List<CrimeJournalChange> changes = crimeJournalChangeRepository.findAfter(after, limit);
+            long remaining = deadline - System.nanoTime();
+            if (!changes.isEmpty() || remaining <= 0) {
+                return changes;
+            }
+            // Изменения с других экземпляров и задержку xmin из-за чужих долгих транзакций ловит периодический опрос
+            collectionVersionService.awaitJournalChange(version, Duration.ofNanos(Math.min(remaining, pollInterval.toNanos())));
+        }
+    }
+
+    // Изменения после позиции after еще не удалялись по сроку хранения
+    boolean isRetained(ChangeFeedCursor after) {
+        return !after.isBefore(crimeJournalChangeRepository.findPurgedPosition());
+    }
+
+    // То же для since клиента: удаленные изменения — 410
+    void checkRetained(ChangeFeedCursor after) {
+        if (!isRetained(after)) {
+            throw new GoneException("Изменения после этой позиции удалены по сроку хранения (" + retention.toDays() +
+                                    " дн.): перечитайте журнал и начните ленту без since");
+        }
+    }
+
+    // Изменения профиля после позиции after (не больше limit), без ожидания
+    List<CrimeJournalChange> findProfileChanges(ChangeFeedCursor after, UUID profileId, int limit) {
+        return crimeJournalChangeRepository.findAfterForProfile(after, profileId, limit);
+    }
+
+    // Позиция сразу после последнего видимого изменения: с нее читают те, кому не нужна история
+    ChangeFeedCursor latestPosition() {
+        return crimeJournalChangeRepository.findLatestPosition().orElse(ChangeFeedCursor.START);
+    }
+
+    // Удаляет изменения старше срока хранения порциями, чтобы не держать долгие блокировки
+    @Scheduled(cron = "${crime.journal.changes.purge-cron:0 30 * * * *}")
+    public void purgeExpiredChanges() {
+        Instant cutoff = Instant.now().minus(retention);
+        while (crimeJournalChangeRepository.deleteOlderThan(cutoff, PURGE_BATCH_SIZE) == PURGE_BATCH_SIZE) {
+            // следующая порция
+        }
+    }
+
+    static JournalChangeDTO toDTO(CrimeJournalChange change) {
+        return JournalChangeDTO.builder()
+                .seq(change.getSeq())
+                .operation(change.getOperation())
+                .changedAt(change.getChangedAt())
+                .journal(CrimeJournalService.toDTO(change.getCrimeJournal()))
+                .previousProfileId(change.getPreviousProfileId())
+                .build();
+    }
+
+}
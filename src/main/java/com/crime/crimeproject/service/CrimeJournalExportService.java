@@ -0,0 +1,125 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.request.ExportFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+@Service
+@AllArgsConstructor
+public class CrimeJournalExportService {
+
+    // Как часто сбрасывать буфер в сокет, чтобы клиент получал данные равномерно
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final String CSV_HEADER = "id,description,date_crime,is_closed,profile_id";
+
+    private final CrimeJournalRepository crimeJournalRepository;
+    private final ObjectMapper objectMapper;
+
+    // Выгружает весь журнал в поток ответа: каждая строка пишется сразу по мере чтения из БД
+    @Transactional(readOnly = true)
+    public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+        if (format == ExportFormat.CSV) {
+            exportCsv(outputStream);
+        } else {
+            exportNdjson(outputStream);
+        }
+    }
+
+    private void exportNdjson(OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            // Строки разделяются переводом строки (NDJSON), а не пробелом по умолчанию
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            crimeJournalRepository.streamAll(new FlushingRowCallbackHandler(generator::flush) {
+                @Override
+                protected void writeRow(ResultSet rs) throws SQLException, IOException {
+                    writeJsonRow(generator, rs);
+                    generator.writeRaw('\n');
+                }
+            });
+        }
+    }
+
+    private void exportCsv(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        // Заголовок отправляется до выполнения запроса — первый байт уходит клиенту сразу
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        writer.flush();
+
+        crimeJournalRepository.streamAll(new FlushingRowCallbackHandler(writer::flush) {
+            @Override
+            protected void writeRow(ResultSet rs) throws SQLException, IOException {
+                writer.write(rs.getObject(1, UUID.class).toString());
+                writer.write(',');
+                writer.write(escapeCsv(rs.getString(2)));
+                writer.write(',');
+                writer.write(rs.getDate(3).toString());
+                writer.write(',');
+                writer.write(Boolean.toString(rs.getBoolean(4)));
+                writer.write(',');
+                writer.write(rs.getObject(5, UUID.class).toString());
+                writer.write('\n');
+            }
+        });
+        writer.flush();
+    }
+
+    // Пишет текущую строку ResultSet как JSON-объект с полями CrimeJournalDTO, без промежуточных объектов
+    // (колонки по номеру в порядке SELECT репозитория; доступен JMH-бенчмаркам)
+    static void writeJsonRow(JsonGenerator generator, ResultSet rs) throws SQLException, IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", rs.getObject(1, UUID.class).toString());
+        generator.writeStringField("description", rs.getString(2));
+        generator.writeStringField("dateCrime", rs.getDate(3).toString());
+        generator.writeBooleanField("isClosed", rs.getBoolean(4));
+        generator.writeStringField("profile_id", rs.getObject(5, UUID.class).toString());
+        generator.writeEndObject();
+    }
+
+    // Экранирует значение по RFC 4180, если в нем есть разделители или кавычки
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Обработчик строк, который сбрасывает буфер после первой строки и затем каждые FLUSH_EVERY_ROWS строк
+    private abstract static class FlushingRowCallbackHandler implements RowCallbackHandler {
+
+        private final Flushable flushable;
+        private long rows;
+
+        FlushingRowCallbackHandler(Flushable flushable) {
+            this.flushable = flushable;
+        }
+
+        protected abstract void writeRow(ResultSet rs) throws SQLException, IOException;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                writeRow(rs);
+                if (++rows == 1 || rows % FLUSH_EVERY_ROWS == 0) {
+                    flushable.flush();
+                }
+            } catch (IOException e) {
+                // Клиент закрыл соединение — прерываем чтение курсора
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
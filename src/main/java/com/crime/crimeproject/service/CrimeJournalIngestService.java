@@ -0,0 +1,301 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.dto.IngestStatus;
+import com.crime.crimeproject.dto.IngestStatusDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.exception.NotFoundException;
+import com.crime.crimeproject.exception.TooManyRequestsException;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.repository.ProfileRepository;
+import com.crime.crimeproject.request.CreateCrimeJournalRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Асинхронная вставка записей журнала (write-behind): запрос только ставит запись в ограниченную очередь,
+// фоновый поток забирает её пачками и вставляет одним JDBC-батчем в транзакции.
+// Временные ошибки БД повторяются с паузой (исчерпав повторы, пачка целиком помечается неудачной),
+// ошибки данных — делением пачки, пока ошибка не останется за одной записью.
+// Переполненная очередь — 429, при остановке приложения очередь дописывается в БД до закрытия пула соединений.
+@Slf4j
+@Service
+public class CrimeJournalIngestService implements SmartLifecycle, MeterBinder {
+
+    private static final String DUPLICATE_MESSAGE = "Запись с такими атрибутами уже существует";
+    // Текст ошибки БД клиенту не отдается: подробности — в журнале приложения
+    private static final String FAILED_MESSAGE = "Не удалось сохранить запись, повторите запрос";
+    private static final String UNAVAILABLE_MESSAGE = "База данных временно недоступна, запись не сохранена: повторите запрос позже";
+    private static final String DROPPED_MESSAGE = "Запись не сохранена: приложение остановлено раньше, чем очередь была записана";
+
+    private final CrimeJournalRepository crimeJournalRepository;
+    private final ProfileRepository profileRepository;
+    private final CollectionVersionService collectionVersionService;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<CrimeJournal> queue;
+    private final int batchSize;
+    private final int retryAttempts;
+    private final Duration retryBackoff;
+    private final Duration shutdownTimeout;
+    private final AtomicLong dropped = new AtomicLong();
+    // Записи в очереди и в записываемой пачке: не вытесняются, пока не получат итог
+    private final Map<UUID, IngestStatusDTO> pending = new ConcurrentHashMap<>();
+    // Итоги недавно записанных; после вытеснения или истечения срока статус определяется по наличию записи в БД
+    private final Cache<UUID, IngestStatusDTO> statuses;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public CrimeJournalIngestService(CrimeJournalRepository crimeJournalRepository,
+                                     ProfileRepository profileRepository,
+                                     CollectionVersionService collectionVersionService,
+                                     IdGenerator idGenerator,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${crime.journal.ingest.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${crime.journal.ingest.batch-size:500}") int batchSize,
+                                     @Value("${crime.journal.ingest.status-ttl:10m}") Duration statusTtl,
+                                     @Value("${crime.journal.ingest.retry.attempts:3}") int retryAttempts,
+                                     @Value("${crime.journal.ingest.retry.backoff:200ms}") Duration retryBackoff,
+                                     @Value("${crime.journal.ingest.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.crimeJournalRepository = crimeJournalRepository;
+        this.profileRepository = profileRepository;
+        this.collectionVersionService = collectionVersionService;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = retryBackoff;
+        this.shutdownTimeout = shutdownTimeout;
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(statusTtl)
+                .maximumSize(queueCapacity * 10L)
+                .build();
+    }
+
+    // Ставит запись в очередь и сразу возвращает её ID; профиль и дубликаты проверяются при записи пачки
+    public IngestStatusDTO enqueue(CreateCrimeJournalRequest request) {
+        if (!accepting) {
+            throw new TooManyRequestsException("Приложение останавливается, асинхронная вставка недоступна");
+        }
+        CrimeJournal crimeJournal = CrimeJournalService.toCrimeJournal(request, idGenerator.nextId());
+        IngestStatusDTO queued = status(crimeJournal.getId(), IngestStatus.QUEUED, null);
+        pending.put(crimeJournal.getId(), queued);
+        if (!queue.offer(crimeJournal)) {
+            pending.remove(crimeJournal.getId());
+            throw new TooManyRequestsException("Очередь асинхронной вставки переполнена, повторите запрос позже");
+        }
+        return queued;
+    }
+
+    // Состояние записи, принятой на асинхронную вставку
+    public IngestStatusDTO getStatus(UUID id) {
+        IngestStatusDTO status = pending.get(id);
+        if (status == null) {
+            status = statuses.getIfPresent(id);
+        }
+        if (status != null) {
+            return status;
+        }
+        if (crimeJournalRepository.existsById(id)) {
+            return status(id, IngestStatus.PERSISTED, null);
+        }
+        throw new NotFoundException("Запись с ID " + id + " не найдена");
+    }
+
+    @Override
+    public void start() {
+        accepting = true;
+        running = true;
+        writer = new Thread(this::drainLoop, "journal-ingest-writer");
+        writer.start();
+    }
+
+    // Перестает принимать записи и ждет, пока фоновый поток допишет очередь. Что не успело записаться
+    // за shutdown-timeout, отбрасывается: такие записи считаются и попадают в журнал приложения
+    @Override
+    public void stop() {
+        accepting = false;
+        running = false;
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<CrimeJournal> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        drop(remaining);
+        if (writer.isAlive()) {
+            writer.interrupt(); // прерывает паузу перед повтором: недописанная пачка тоже будет отброшена
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return accepting;
+    }
+
+    // Останавливается позже веб-сервера (новые запросы уже не приходят) и раньше пула соединений
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    // Размер очереди: рост означает, что БД не успевает за потоком записей
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crime.journal.ingest.queue.size", queue, Collection::size).register(registry);
+        FunctionCounter.builder("crime.journal.ingest.dropped", dropped, AtomicLong::get)
+                .description("Записи, отброшенные из очереди при остановке приложения")
+                .register(registry);
+    }
+
+    private void drainLoop() {
+        List<CrimeJournal> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                CrimeJournal first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Часть пачки могла записаться до прерывания — отбрасываются только записи, оставшиеся в очереди
+                drop(batch.stream().filter(it -> pending.containsKey(it.getId())).toList());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Помечает записи, которые уже не будут записаны, считает их и пишет их ID в журнал приложения
+    private void drop(List<CrimeJournal> crimeJournals) {
+        if (crimeJournals.isEmpty()) {
+            return;
+        }
+        resolve(crimeJournals, DROPPED_MESSAGE);
+        dropped.addAndGet(crimeJournals.size());
+        log.error("Асинхронная вставка остановлена через {}: не записано {} записей, ID: {}",
+                shutdownTimeout, crimeJournals.size(), crimeJournals.stream().map(CrimeJournal::getId).toList());
+    }
+
+    // Записывает пачку. Временная ошибка БД (блокировка, таймаут, потеря соединения) повторяется с растущей паузой,
+    // а после последней попытки вся пачка сразу помечается неудачной: при недоступной БД деление пачки
+    // повторяло бы те же ожидания для каждой ее части. Любая другая ошибка — деление пачки пополам,
+    // чтобы одна неудачная запись не утянула за собой остальные
+    void write(List<CrimeJournal> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Map<UUID, IngestStatusDTO> results = transactionTemplate.execute(transaction -> insert(batch));
+                // Статусы и версия коллекции — только после фиксации транзакции
+                resolve(results);
+                if (results.values().stream().anyMatch(it -> it.getStatus() == IngestStatus.PERSISTED)) {
+                    collectionVersionService.journalChanged();
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    if (attempt < retryAttempts) {
+                        log.warn("Временная ошибка при записи пачки из {} записей, попытка {} из {}: {}",
+                                batch.size(), attempt, retryAttempts, e.getMessage());
+                        Thread.sleep(retryBackoff.multipliedBy(1L << (attempt - 1)));
+                        continue;
+                    }
+                    log.error("Не удалось записать пачку из {} записей асинхронной вставки за {} попыток, ID: {}",
+                            batch.size(), retryAttempts, batch.stream().map(CrimeJournal::getId).toList(), e);
+                    resolve(batch, UNAVAILABLE_MESSAGE);
+                    return;
+                }
+                if (batch.size() > 1) {
+                    write(batch.subList(0, batch.size() / 2));
+                    write(batch.subList(batch.size() / 2, batch.size()));
+                    return;
+                }
+                CrimeJournal crimeJournal = batch.get(0);
+                log.error("Не удалось записать запись {} асинхронной вставки", crimeJournal.getId(), e);
+                resolve(List.of(crimeJournal), FAILED_MESSAGE);
+                return;
+            }
+        }
+    }
+
+    // Итоговые статусы сначала попадают в кэш итогов и только потом снимаются с ожидающих,
+    // чтобы getStatus между этими шагами не ответил 404
+    private void resolve(Map<UUID, IngestStatusDTO> results) {
+        statuses.putAll(results);
+        pending.keySet().removeAll(results.keySet());
+    }
+
+    private void resolve(List<CrimeJournal> failed, String message) {
+        Map<UUID, IngestStatusDTO> results = new HashMap<>();
+        for (CrimeJournal crimeJournal : failed) {
+            results.put(crimeJournal.getId(), status(crimeJournal.getId(), IngestStatus.FAILED, message));
+        }
+        resolve(results);
+    }
+
+    // Вставляет пачку в текущей транзакции и возвращает итог по каждой записи
+    private Map<UUID, IngestStatusDTO> insert(List<CrimeJournal> batch) {
+        Set<UUID> existingProfiles = profileRepository.findExistingIds(
+                batch.stream().map(CrimeJournal::getProfileId).collect(Collectors.toSet()));
+
+        Map<UUID, IngestStatusDTO> results = new HashMap<>();
+        List<CrimeJournal> toInsert = new ArrayList<>();
+        for (CrimeJournal crimeJournal : batch) {
+            if (existingProfiles.contains(crimeJournal.getProfileId())) {
+                toInsert.add(crimeJournal);
+            } else {
+                results.put(crimeJournal.getId(), status(crimeJournal.getId(), IngestStatus.REJECTED,
+                        "Не найден профиль с ID: " + crimeJournal.getProfileId()));
+            }
+        }
+
+        int[] counts = toInsert.isEmpty() ? new int[0] : crimeJournalRepository.saveAll(toInsert);
+        for (int i = 0; i < toInsert.size(); i++) {
+            UUID id = toInsert.get(i).getId();
+            results.put(id, CrimeJournalRepository.isApplied(counts[i])
+                    ? status(id, IngestStatus.PERSISTED, null)
+                    : status(id, IngestStatus.REJECTED, DUPLICATE_MESSAGE));
+        }
+        return results;
+    }
+
+    // Ошибки, после которых та же пачка может записаться: конфликт блокировок, таймаут, сбой соединения
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+               || e instanceof RecoverableDataAccessException
+               || e instanceof DataAccessResourceFailureException;
+    }
+
+    private static IngestStatusDTO status(UUID id, IngestStatus status, String message) {
+        return IngestStatusDTO.builder().id(id).status(status).message(message).build();
+    }
+
+}
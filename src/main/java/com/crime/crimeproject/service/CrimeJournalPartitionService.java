@@ -0,0 +1,94 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.dto.PartitionDTO;
+import com.crime.crimeproject.exception.NotFoundException;
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.repository.CrimeJournalPartitionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+// Годовые секции журнала: заранее создает секции на будущие годы и отключает старые для архивации
+@Service
+public class CrimeJournalPartitionService {
+
+    private static final int DETACH_ATTEMPTS = 5;
+
+    private final CrimeJournalPartitionRepository crimeJournalPartitionRepository;
+    private final CrimeJournalCache crimeJournalCache;
+    private final CollectionVersionService collectionVersionService;
+    private final int yearsAhead;
+    private final Duration detachLockTimeout;
+
+    public CrimeJournalPartitionService(CrimeJournalPartitionRepository crimeJournalPartitionRepository,
+                                        CrimeJournalCache crimeJournalCache,
+                                        CollectionVersionService collectionVersionService,
+                                        @Value("${crime.journal.partitions.years-ahead:1}") int yearsAhead,
+                                        @Value("${crime.journal.partitions.detach-lock-timeout:2s}") Duration detachLockTimeout) {
+        this.crimeJournalPartitionRepository = crimeJournalPartitionRepository;
+        this.crimeJournalCache = crimeJournalCache;
+        this.collectionVersionService = collectionVersionService;
+        this.yearsAhead = yearsAhead;
+        this.detachLockTimeout = detachLockTimeout;
+    }
+
+    // Запускается при старте и по расписанию, чтобы новые записи не копились в секции по умолчанию
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${crime.journal.partitions.cron:0 0 3 * * *}")
+    public void scheduledEnsurePartitions() {
+        ensurePartitions();
+    }
+
+    // Создает недостающие секции на текущий и следующие годы, возвращает число созданных
+    public int ensurePartitions() {
+        int currentYear = LocalDate.now().getYear();
+        return crimeJournalPartitionRepository.ensurePartitions(currentYear, currentYear + yearsAhead);
+    }
+
+    // Список секций журнала
+    public List<PartitionDTO> getPartitions() {
+        return crimeJournalPartitionRepository.findAll();
+    }
+
+    // Отключает секцию за год (таблица crime_journal_yYYYY остается для архивации), возвращает число её строк.
+    // Годы до 2000 хранятся в одной секции crime_journal_before_2000 и отключаются только вместе.
+    // Блокировка ждется коротко и с повторами, чтобы не выстраивать за собой очередь из обычных запросов
+    public long detachPartition(int year) {
+        if (year >= LocalDate.now().getYear()) {
+            throw new ValidationException("Нельзя отключить секцию текущего или будущего года");
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long detachedRows = crimeJournalPartitionRepository.detachPartition(year, detachLockTimeout)
+                        .orElseThrow(() -> new NotFoundException("Секция журнала за " + year + " год не найдена"));
+                crimeJournalCache.invalidateAll();
+                collectionVersionService.journalChanged();
+                return detachedRows;
+            } catch (CannotAcquireLockException e) {
+                if (attempt == DETACH_ATTEMPTS) {
+                    throw new ValidationException("Не удалось отключить секцию за " + year + " год: таблица журнала занята, повторите позже");
+                }
+                sleep(detachLockTimeout.toMillis() * attempt);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -1,25 +1,51 @@
 package com.crime.crimeproject.service;
 
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.dto.BatchItemResultDTO;
+import com.crime.crimeproject.dto.BatchItemStatus;
+import com.crime.crimeproject.dto.CacheStatsDTO;
 import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.dto.PageDTO;
 import com.crime.crimeproject.entity.CrimeJournal;
 import com.crime.crimeproject.exception.NotFoundException;
 import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.pagination.JournalCursor;
 import com.crime.crimeproject.repository.CrimeJournalRepository;
 import com.crime.crimeproject.repository.ProfileRepository;
 import com.crime.crimeproject.request.CreateCrimeJournalRequest;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.SortDirection;
+import com.crime.crimeproject.request.UpdateCrimeJournalRequest;
+import com.crime.crimeproject.validator.DateRangeValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.AllArgsConstructor;
+import org.postgresql.util.PSQLState;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
-import java.util.UUID;
+import java.sql.SQLException;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 public class CrimeJournalService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 10000;
+    private static final String DUPLICATE_MESSAGE = "Запись с такими атрибутами уже существует";
+
     private final CrimeJournalRepository crimeJournalRepository;
     private final ProfileRepository profileRepository;
+    private final Validator validator;
+    private final CrimeJournalCache crimeJournalCache;
+    private final CollectionVersionService collectionVersionService;
+    private final IdGenerator idGenerator;
 
     // Создает новую запись журнала преступлений
     public CrimeJournalDTO create(CreateCrimeJournalRequest request) {
@@ -27,53 +53,207 @@ public class CrimeJournalService {
             throw new ValidationException("Не найден профиль с ID: " + request.getProfileId());
         }
 
-        CrimeJournal newCrimeJournal = toCrimeJournal(request);
-        if (crimeJournalRepository.findByAllAttributes(newCrimeJournal).isPresent()) {
-            throw new ValidationException("Запись с такими атрибутами уже существует");
+        // Проверка дубликата и вставка выполняются одним запросом (INSERT ... ON CONFLICT DO NOTHING)
+        CrimeJournal newCrimeJournal = toCrimeJournal(request, idGenerator.nextId());
+        boolean saved;
+        try {
+            saved = crimeJournalRepository.save(newCrimeJournal);
+        } catch (DataIntegrityViolationException e) {
+            throw profileNotFound(e, "Не найден профиль с ID: " + request.getProfileId());
         }
-
-        boolean saved = crimeJournalRepository.save(newCrimeJournal);
         if (!saved) {
-            throw new ValidationException("Не удалось сохранить запись в журнале");
+            throw new ValidationException(DUPLICATE_MESSAGE);
         }
+        collectionVersionService.journalChanged();
         return toDTO(newCrimeJournal);
     }
 
-    // Находит запись по ID и возвращает DTO
+    // Создает пачку записей: профили проверяются один раз на весь пакет, вставка — одним батчем,
+    // дубликаты (в том числе внутри пакета) отсекает уникальный индекс
+    @Transactional
+    public List<BatchItemResultDTO> createBatch(List<CreateCrimeJournalRequest> requests) {
+        validateBatchSize(requests);
+        BatchItemResultDTO[] results = new BatchItemResultDTO[requests.size()];
+
+        List<Integer> candidateIndexes = new ArrayList<>();
+        List<CrimeJournal> candidates = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String violations = validateItem(requests.get(i));
+            if (violations != null) {
+                results[i] = rejected(i, null, violations);
+            } else {
+                candidateIndexes.add(i);
+                candidates.add(toCrimeJournal(requests.get(i), idGenerator.nextId()));
+            }
+        }
+
+        Set<UUID> existingProfiles = candidates.isEmpty() ? Set.of() : profileRepository.findExistingIds(
+                candidates.stream().map(CrimeJournal::getProfileId).collect(Collectors.toSet()));
+
+        List<Integer> insertIndexes = new ArrayList<>();
+        List<CrimeJournal> toInsert = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            CrimeJournal candidate = candidates.get(i);
+            int index = candidateIndexes.get(i);
+            if (!existingProfiles.contains(candidate.getProfileId())) {
+                results[index] = rejected(index, null, "Не найден профиль с ID: " + candidate.getProfileId());
+            } else {
+                insertIndexes.add(index);
+                toInsert.add(candidate);
+            }
+        }
+
+        int[] counts = toInsert.isEmpty() ? new int[0] : crimeJournalRepository.saveAll(toInsert);
+        boolean changed = false;
+        for (int i = 0; i < toInsert.size(); i++) {
+            int index = insertIndexes.get(i);
+            UUID id = toInsert.get(i).getId();
+            if (CrimeJournalRepository.isApplied(counts[i])) {
+                results[index] = result(index, id, BatchItemStatus.CREATED);
+                changed = true;
+            } else {
+                results[index] = rejected(index, null, DUPLICATE_MESSAGE);
+            }
+        }
+        // Пакет из одних дубликатов и отклоненных элементов коллекцию не меняет — ETag остается прежним
+        if (changed) {
+            collectionVersionService.journalChanged();
+        }
+        return Arrays.asList(results);
+    }
+
+    // Обновляет пачку записей: существование записей и профилей проверяется один раз на весь пакет
+    @Transactional
+    public List<BatchItemResultDTO> updateBatch(List<UpdateCrimeJournalRequest> requests) {
+        validateBatchSize(requests);
+        BatchItemResultDTO[] results = new BatchItemResultDTO[requests.size()];
+
+        List<Integer> candidateIndexes = new ArrayList<>();
+        List<UpdateCrimeJournalRequest> candidates = new ArrayList<>();
+        Set<UUID> batchIds = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UpdateCrimeJournalRequest request = requests.get(i);
+            String violations = validateItem(request);
+            if (violations != null) {
+                results[i] = rejected(i, request == null ? null : request.getId(), violations);
+            } else if (!batchIds.add(request.getId())) {
+                results[i] = rejected(i, request.getId(), "Запись с ID " + request.getId() + " повторяется в пакете");
+            } else {
+                candidateIndexes.add(i);
+                candidates.add(request);
+            }
+        }
+
+        Set<UUID> existingIds = candidates.isEmpty() ? Set.of() : crimeJournalRepository.findExistingIds(batchIds);
+        Set<UUID> existingProfiles = candidates.isEmpty() ? Set.of() : profileRepository.findExistingIds(
+                candidates.stream().map(UpdateCrimeJournalRequest::getProfileId).collect(Collectors.toSet()));
+
+        List<Integer> updateIndexes = new ArrayList<>();
+        List<CrimeJournal> toUpdate = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            UpdateCrimeJournalRequest request = candidates.get(i);
+            int index = candidateIndexes.get(i);
+            if (!existingIds.contains(request.getId())) {
+                results[index] = result(index, request.getId(), BatchItemStatus.NOT_FOUND);
+            } else if (!existingProfiles.contains(request.getProfileId())) {
+                results[index] = rejected(index, request.getId(), "Профиль с ID " + request.getProfileId() + " не найден");
+            } else {
+                updateIndexes.add(index);
+                toUpdate.add(CrimeJournal.builder()
+                        .id(request.getId())
+                        .description(request.getDescription())
+                        .dateCrime(request.getDateCrime())
+                        .isClosed(request.getIsClosed())
+                        .profileId(request.getProfileId())
+                        .build());
+            }
+        }
+
+        int[] counts;
+        try {
+            counts = toUpdate.isEmpty() ? new int[0] : crimeJournalRepository.updateAll(toUpdate);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException(DUPLICATE_MESSAGE);
+        }
+        boolean changed = false;
+        for (int i = 0; i < toUpdate.size(); i++) {
+            int index = updateIndexes.get(i);
+            UUID id = toUpdate.get(i).getId();
+            boolean applied = CrimeJournalRepository.isApplied(counts[i]);
+            results[index] = result(index, id, applied ? BatchItemStatus.UPDATED : BatchItemStatus.NOT_FOUND);
+            changed |= applied;
+        }
+        if (changed) {
+            collectionVersionService.journalChanged();
+        }
+        return Arrays.asList(results);
+    }
+
+    // Удаляет пачку записей по ID одним запросом
+    @Transactional
+    public List<BatchItemResultDTO> deleteBatch(List<UUID> ids) {
+        validateBatchSize(ids);
+        Set<UUID> toDelete = ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        Set<UUID> deleted = toDelete.isEmpty() ? Set.of() : crimeJournalRepository.deleteAllByIds(toDelete);
+        if (!deleted.isEmpty()) {
+            collectionVersionService.journalChanged();
+        }
+
+        List<BatchItemResultDTO> results = new ArrayList<>(ids.size());
+        Set<UUID> reported = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            UUID id = ids.get(i);
+            if (id == null) {
+                results.add(rejected(i, null, "ID записи не указан"));
+            } else if (deleted.contains(id) && reported.add(id)) {
+                results.add(result(i, id, BatchItemStatus.DELETED));
+            } else {
+                results.add(result(i, id, BatchItemStatus.NOT_FOUND));
+            }
+        }
+        return results;
+    }
+
+    // Находит запись по ID и возвращает DTO. Читается из кэша, а промахи — с основной БД: отстающая реплика
+    // положила бы в общий кэш старую версию записи на все время его жизни
     public CrimeJournalDTO findById(UUID id) {
         // Получаем Optional<CrimeJournal> и преобразуем его в DTO, если объект существует.
         return crimeJournalRepository.findById(id)
-                .map(this::toDTO)
+                .map(CrimeJournalService::toDTO)
                 .orElseThrow(() -> new NotFoundException("Запись с ID " + id + " не найдена"));
     }
 
-    // Находит записи по описанию и возвращает список DTO
-    public List<CrimeJournalDTO> findByDescription(String query) {
-        List<CrimeJournal> journals = crimeJournalRepository.findByDescription(query);
+    // Находит записи по описанию и возвращает список DTO, отсортированный по релевантности
+    @Transactional(readOnly = true)
+    public List<CrimeJournalDTO> findByDescription(String query, int limit, int offset) {
+        validateLimit(limit);
+        if (offset < 0) {
+            throw new ValidationException("Параметр offset не может быть отрицательным");
+        }
+
+        List<CrimeJournalDTO> journals = crimeJournalRepository.findByDescription(query, limit, offset);
         if (journals.isEmpty()) {
             // Возврат пустого списка, чтобы API возвращал пустой JSON-массив
             // return Collections.emptyList();
             throw new NotFoundException("Записи с описанием «" + query + "» не найдены");
         }
-        return journals.stream().map(this::toDTO).collect(Collectors.toList());
+        return journals;
     }
 
-    // Возвращает все записи в виде списка DTO
-    public List<CrimeJournalDTO> getAll() {
-        List<CrimeJournal> journals = crimeJournalRepository.findAll();
-        if (journals.isEmpty()) {
-            throw new NotFoundException("Записи в журнале не найдены");
-        }
-        return journals.stream().map(this::toDTO).collect(Collectors.toList());
+    // Возвращает страницу записей журнала с учетом фильтров и курсора продолжения
+    @Transactional(readOnly = true)
+    public PageDTO<CrimeJournalDTO> getPage(CrimeJournalFilter filter, String cursor, int limit, SortDirection direction) {
+        return findPage(filter, cursor, limit, direction, "Записи в журнале не найдены");
     }
 
-    // Возвращает все записи определенного пользователя по его ID
-    public List<CrimeJournalDTO> getByProfileId(UUID profileId) {
-        List<CrimeJournal> journals = crimeJournalRepository.findByProfileId(profileId);
-        if (journals.isEmpty()) {
-            throw new NotFoundException("Записи для данного пользователя не найдены");
-        }
-        return journals.stream().map(this::toDTO).collect(Collectors.toList());
+    // Возвращает записи определенного пользователя по его ID постранично
+    @Transactional(readOnly = true)
+    public PageDTO<CrimeJournalDTO> getByProfileId(UUID profileId, Boolean isClosed, String cursor, int limit, SortDirection direction) {
+        CrimeJournalFilter filter = CrimeJournalFilter.builder()
+                .profileId(profileId)
+                .isClosed(isClosed)
+                .build();
+        return findPage(filter, cursor, limit, direction, "Записи для данного пользователя не найдены");
     }
 
     // Обновляет существующую запись по ID
@@ -93,16 +273,23 @@ public class CrimeJournalService {
         existingJournal.setIsClosed(request.getIsClosed());
         existingJournal.setProfileId(request.getProfileId());
 
-        crimeJournalRepository.update(existingJournal);
+        try {
+            crimeJournalRepository.update(existingJournal);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException(DUPLICATE_MESSAGE);
+        } catch (DataIntegrityViolationException e) {
+            throw profileNotFound(e, "Профиль с ID " + request.getProfileId() + " не найден");
+        }
+        collectionVersionService.journalChanged();
         return toDTO(existingJournal);
     }
 
     // Удаление записи по ID
     public void delete(UUID id) {
-        if (!crimeJournalRepository.existsById(id)) {
+        if (!crimeJournalRepository.deleteById(id)) {
             throw new NotFoundException("Запись с ID " + id + " не найдена для удаления");
         }
-        crimeJournalRepository.deleteById(id);
+        collectionVersionService.journalChanged();
     }
 
     // Удаляет все записи пользователя по его ID
@@ -115,13 +302,107 @@ public class CrimeJournalService {
         if (deletedRows == 0) {
             throw new NotFoundException("Записи для профиля с ID " + profileId + " не найдены или уже удалены");
         }
+        collectionVersionService.journalChanged();
+    }
+
+    // Профиль удален между проверкой existsById (она может ответить из кэша) и записью: нарушение внешнего ключа
+    // FK_crime_journal_profileId — ошибка клиента, а не сервера. Остальные нарушения целостности пробрасываются
+    private static RuntimeException profileNotFound(DataIntegrityViolationException e, String message) {
+        if (e.getMostSpecificCause() instanceof SQLException sqlException
+                && PSQLState.FOREIGN_KEY_VIOLATION.getState().equals(sqlException.getSQLState())) {
+            return new ValidationException(message);
+        }
+        return e;
+    }
+
+    // Статистика кэша записей журнала
+    public CacheStatsDTO getCacheStats() {
+        return crimeJournalCache.stats();
+    }
+
+    // Проверяет параметры страницы (limit, период, курсор) и возвращает разобранный курсор. Контроллер вызывает ее
+    // до сравнения ETag: иначе неверный запрос с совпавшим If-None-Match получил бы 304 вместо 400
+    public JournalCursor validatePage(CrimeJournalFilter filter, String cursor, int limit) {
+        validateLimit(limit);
+        if (filter.getFrom() != null && !DateRangeValidator.isWithinRange(filter.getFrom())) {
+            throw new ValidationException("Дата начала периода должна быть между '" + DateRangeValidator.MIN_DATE + "' и текущей датой");
+        }
+        if (filter.getTo() != null && !DateRangeValidator.isWithinRange(filter.getTo())) {
+            throw new ValidationException("Дата окончания периода должна быть между '" + DateRangeValidator.MIN_DATE + "' и текущей датой");
+        }
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom().isAfter(filter.getTo())) {
+            throw new ValidationException("Дата начала периода не может быть позже даты окончания");
+        }
+        return cursor == null ? null : JournalCursor.decode(cursor);
+    }
+
+    // Keyset-выборка страницы; пустая первая страница — NotFoundException с переданным сообщением
+    private PageDTO<CrimeJournalDTO> findPage(CrimeJournalFilter filter, String cursor, int limit, SortDirection direction,
+                                              String notFoundMessage) {
+        JournalCursor after = validatePage(filter, cursor, limit);
+        // Запрашиваем на одну запись больше, чтобы понять, есть ли следующая страница
+        List<CrimeJournalDTO> journals = crimeJournalRepository.findPage(filter, after, limit + 1, direction);
+        if (journals.isEmpty() && after == null) {
+            throw new NotFoundException(notFoundMessage);
+        }
+
+        String nextCursor = null;
+        if (journals.size() > limit) {
+            journals = journals.subList(0, limit);
+            CrimeJournalDTO last = journals.get(limit - 1);
+            nextCursor = JournalCursor.of(last.getDateCrime(), last.getId()).encode();
+        }
+        return PageDTO.<CrimeJournalDTO>builder()
+                .items(journals)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Проверяет, что пакет не пустой и не превышает допустимый размер
+    private void validateBatchSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ValidationException("Пакет не должен быть пустым");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Размер пакета не должен превышать " + MAX_BATCH_SIZE);
+        }
+    }
+
+    // Валидирует элемент пакета, возвращает текст ошибок в формате GlobalExceptionHandler или null
+    private String validateItem(Object item) {
+        if (item == null) {
+            return "Пустой элемент пакета";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(it -> it.getPropertyPath() + " " + it.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static BatchItemResultDTO result(int index, UUID id, BatchItemStatus status) {
+        return BatchItemResultDTO.builder().index(index).id(id).status(status).build();
+    }
+
+    private static BatchItemResultDTO rejected(int index, UUID id, String message) {
+        return BatchItemResultDTO.builder().index(index).id(id).status(BatchItemStatus.REJECTED).message(message).build();
+    }
+
+    // Проверяет размер запрашиваемой страницы
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
     }
 
-    // Конвертирует данные запроса в сущность журнала преступлений
-    private CrimeJournal toCrimeJournal(CreateCrimeJournalRequest request) {
+    // Конвертирует данные запроса в сущность журнала преступлений (используется и асинхронной вставкой)
+    static CrimeJournal toCrimeJournal(CreateCrimeJournalRequest request, UUID id) {
         return CrimeJournal
                 .builder()
-                .id(UUID.randomUUID())
+                .id(id)
                 .description(request.getDescription())
                 .dateCrime(request.getDateCrime())
                 .isClosed(request.getIsClosed())
@@ -129,8 +410,8 @@ public class CrimeJournalService {
                 .build();
     }
 
-    // Конвертирует сущность журнала преступлений в DTO
-    private CrimeJournalDTO toDTO(CrimeJournal newCrimeJournal) {
+    // Конвертирует сущность журнала преступлений в DTO (используется и лентой изменений)
+    static CrimeJournalDTO toDTO(CrimeJournal newCrimeJournal) {
         return CrimeJournalDTO
                 .builder()
                 .id(newCrimeJournal.getId())
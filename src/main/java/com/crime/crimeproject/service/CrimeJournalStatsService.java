@@ -0,0 +1,74 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.dto.CrimeJournalStatsDTO;
+import com.crime.crimeproject.dto.MonthStatsDTO;
+import com.crime.crimeproject.dto.ProfileStatsDTO;
+import com.crime.crimeproject.entity.CrimeJournalStats;
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.repository.CrimeJournalStatsRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+
+@Service
+@AllArgsConstructor
+public class CrimeJournalStatsService {
+
+    private final CrimeJournalStatsRepository crimeJournalStatsRepository;
+
+    // Проверяет год статистики; контроллер вызывает ее до сравнения ETag
+    public void validateYear(Integer year) {
+        if (year != null && (year < 1900 || year > LocalDate.now().getYear())) {
+            throw new ValidationException("Год должен быть между 1900 и текущим годом");
+        }
+    }
+
+    // Считает статистику по статусу, профилям и месяцам из сводной таблицы (без сканирования журнала)
+    public CrimeJournalStatsDTO getStats(UUID profileId, Integer year) {
+        validateYear(year);
+
+        long closed = 0;
+        long open = 0;
+        Map<UUID, long[]> byProfile = new LinkedHashMap<>();
+        SortedMap<LocalDate, long[]> byMonth = new TreeMap<>();
+        for (CrimeJournalStats row : crimeJournalStatsRepository.find(profileId, year)) {
+            // Индекс 0 — закрытые, 1 — открытые
+            int slot = row.getIsClosed() ? 0 : 1;
+            byProfile.computeIfAbsent(row.getProfileId(), it -> new long[2])[slot] += row.getCrimeCount();
+            byMonth.computeIfAbsent(row.getMonth(), it -> new long[2])[slot] += row.getCrimeCount();
+            if (row.getIsClosed()) {
+                closed += row.getCrimeCount();
+            } else {
+                open += row.getCrimeCount();
+            }
+        }
+
+        List<ProfileStatsDTO> profiles = new ArrayList<>(byProfile.size());
+        byProfile.forEach((id, counts) -> profiles.add(ProfileStatsDTO.builder()
+                .profileId(id)
+                .total(counts[0] + counts[1])
+                .closed(counts[0])
+                .open(counts[1])
+                .build()));
+
+        List<MonthStatsDTO> months = new ArrayList<>(byMonth.size());
+        byMonth.forEach((month, counts) -> months.add(MonthStatsDTO.builder()
+                .year(month.getYear())
+                .month(month.getMonthValue())
+                .total(counts[0] + counts[1])
+                .closed(counts[0])
+                .open(counts[1])
+                .build()));
+
+        return CrimeJournalStatsDTO.builder()
+                .total(closed + open)
+                .closed(closed)
+                .open(open)
+                .byProfile(profiles)
+                .byMonth(months)
+                .build();
+    }
+
+}
@@ -0,0 +1,412 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.dto.JournalChangeDTO;
+import com.crime.crimeproject.entity.CrimeJournalChange;
+import com.crime.crimeproject.exception.NotFoundException;
+import com.crime.crimeproject.exception.TooManyRequestsException;
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import com.crime.crimeproject.repository.ProfileRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Подписки на изменения журнала профиля через Server-Sent Events (GET /journal/user/{profileId}/stream).
+// Один фоновый поток читает ленту изменений (crime_journal_changes) за всех подписчиков и раздает события
+// по профилям, поэтому число запросов к БД не зависит от числа открытых экранов. У каждого подписчика своя
+// ограниченная очередь; отправкой занимается короткая задача из небольшого пула платформенных потоков, только
+// пока очередь не пуста, — поток на соединение не держится. Пул не виртуальный: SseEmitter.send синхронизирован
+// и на время записи в сокет закрепил бы поток-носитель. Медленный клиент не тормозит остальных: при переполнении
+// его очередь сбрасывается и он получает событие resync (перечитать список через GET).
+// id события — позиция в ленте: при переподключении EventSource присылает ее в Last-Event-ID, и подписчик
+// получает пропущенные за время разрыва изменения (или resync, если их слишком много или они уже удалены)
+@Service
+public class CrimeJournalStreamService implements SmartLifecycle, MeterBinder {
+
+    private static final int READ_BATCH_SIZE = 1000;
+    private static final Object HEARTBEAT = new Object();
+    private static final long START_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final CrimeJournalChangeFeedService crimeJournalChangeFeedService;
+    private final ProfileRepository profileRepository;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final Duration heartbeatInterval;
+    private final Duration timeout;
+
+    private final Map<UUID, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ThreadPoolExecutor senders;
+
+    private volatile boolean running;
+    private Thread reader;
+
+    public CrimeJournalStreamService(CrimeJournalChangeFeedService crimeJournalChangeFeedService,
+                                     ProfileRepository profileRepository,
+                                     @Value("${crime.journal.stream.max-subscribers:10000}") int maxSubscribers,
+                                     @Value("${crime.journal.stream.buffer-size:256}") int bufferSize,
+                                     @Value("${crime.journal.stream.sender-threads:8}") int senderThreads,
+                                     @Value("${crime.journal.stream.heartbeat-interval:15s}") Duration heartbeatInterval,
+                                     @Value("${crime.journal.stream.timeout:30m}") Duration timeout) {
+        this.crimeJournalChangeFeedService = crimeJournalChangeFeedService;
+        this.profileRepository = profileRepository;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.heartbeatInterval = heartbeatInterval;
+        this.timeout = timeout;
+        // У подписчика не больше одной задачи в очереди пула, поэтому очередь ограничена числом подписчиков
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxSubscribers),
+                Thread.ofPlatform().name("journal-stream-sender-", 0).daemon(true).factory());
+    }
+
+    // Открывает поток событий по записям журнала профиля. lastEventId — заголовок Last-Event-ID переподключения:
+    // сначала отправляются изменения после него. По истечении timeout поток закрывается, EventSource в браузере
+    // переподключается сам
+    public SseEmitter subscribe(UUID profileId, @Nullable String lastEventId) {
+        if (!profileRepository.existsById(profileId)) {
+            throw new NotFoundException("Профиль с ID " + profileId + " не найден");
+        }
+        if (!running) {
+            throw new TooManyRequestsException("Приложение останавливается, подписка недоступна");
+        }
+        int subscribers = subscriberCount.incrementAndGet();
+        if (subscribers > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new TooManyRequestsException("Слишком много подписчиков, повторите запрос позже");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(profileId, emitter);
+        // Подписка регистрируется до чтения пропущенного: изменение, зафиксированное между ними, придет
+        // из потока чтения, а повтор отсекается по позиции. Добавление — внутри compute: иначе закрытие
+        // последнего подписчика профиля могло бы убрать из карты набор, в который она только что попала
+        subscriptions.compute(profileId, (id, set) -> {
+            Set<Subscription> profileSubscriptions = set != null ? set : ConcurrentHashMap.newKeySet();
+            profileSubscriptions.add(subscription);
+            return profileSubscriptions;
+        });
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        if (subscribers == 1) {
+            LockSupport.unpark(reader); // будим поток чтения, простаивавший без подписчиков
+        }
+        if (lastEventId != null) {
+            catchUp(subscription, lastEventId);
+        } else {
+            subscription.start(latestPosition());
+        }
+        return emitter;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        reader = Thread.ofVirtual().name("journal-stream-reader").start(this::readLoop);
+    }
+
+    // Закрывает все потоки событий, иначе мягкая остановка веб-сервера ждала бы их до таймаута
+    @Override
+    public void stop() {
+        running = false;
+        reader.interrupt();
+        subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.emitter.complete()));
+        senders.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Останавливается раньше мягкой остановки веб-сервера (DEFAULT_PHASE - 1024)
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 512;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("crime.journal.stream.subscribers", subscriberCount, AtomicInteger::get).register(registry);
+    }
+
+    // Пропущенные изменения профиля после позиции переподключения. Если их больше буфера или часть уже удалена
+    // по сроку хранения, вместо них отправляется resync
+    private void catchUp(Subscription subscription, String lastEventId) {
+        ChangeFeedCursor after;
+        try {
+            after = ChangeFeedCursor.decode(lastEventId);
+        } catch (ValidationException e) {
+            // id прежнего формата (номер изменения до перехода на позиции ленты): откуда продолжать, неизвестно
+            subscription.startWithResync(latestPosition());
+            return;
+        }
+        try {
+            if (crimeJournalChangeFeedService.isRetained(after)) {
+                // Позиция берется до чтения пропущенного: все изменения до нее в него попадут
+                ChangeFeedCursor latest = crimeJournalChangeFeedService.latestPosition();
+                List<CrimeJournalChange> missed = crimeJournalChangeFeedService.findProfileChanges(after, subscription.profileId, bufferSize + 1);
+                if (missed.size() <= bufferSize) {
+                    subscription.start(after, missed.stream().map(CrimeJournalStreamService::toEvent).toList(), latest);
+                    return;
+                }
+            }
+            subscription.startWithResync(crimeJournalChangeFeedService.latestPosition());
+        } catch (DataAccessException e) {
+            subscription.startWithResync(null);
+        }
+    }
+
+    // Позиция, начиная с которой новый подписчик получает изменения; null — без отсечения (БД недоступна)
+    @Nullable
+    private ChangeFeedCursor latestPosition() {
+        try {
+            return crimeJournalChangeFeedService.latestPosition();
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+
+    // Без подписчиков лента не читается. После простоя чтение начинается с самой ранней позиции, с которой
+    // события нужны подписчикам: не с текущей позиции ленты (изменения, зафиксированные между подпиской
+    // и первым чтением, не дошли бы до подписчика) и не с позиции до простоя (историю, которую никто не ждет,
+    // пришлось бы дочитывать пачками раньше первого живого события)
+    private void readLoop() {
+        ChangeFeedCursor position = null;
+        long nextHeartbeat = System.nanoTime() + heartbeatInterval.toNanos();
+        while (running) {
+            try {
+                if (subscriberCount.get() == 0) {
+                    position = null;
+                    LockSupport.parkNanos(heartbeatInterval.toNanos());
+                    if (Thread.interrupted()) {
+                        return;
+                    }
+                    continue;
+                }
+                if (position == null) {
+                    Optional<ChangeFeedCursor> start = earliestStart();
+                    if (start.isEmpty()) {
+                        LockSupport.parkNanos(START_WAIT_NANOS); // подписка еще читает пропущенное
+                        continue;
+                    }
+                    position = start.get();
+                }
+
+                List<CrimeJournalChange> changes = crimeJournalChangeFeedService.awaitChanges(position, READ_BATCH_SIZE, heartbeatInterval);
+                for (CrimeJournalChange change : changes) {
+                    Event event = toEvent(change);
+                    publish(change.getCrimeJournal().getProfileId(), event);
+                    // Запись, ушедшая к другому профилю, для прежнего профиля — тоже изменение (удаление из его списка)
+                    if (change.getPreviousProfileId() != null) {
+                        publish(change.getPreviousProfileId(), event);
+                    }
+                }
+                if (!changes.isEmpty()) {
+                    CrimeJournalChange last = changes.get(changes.size() - 1);
+                    position = new ChangeFeedCursor(last.getTxid(), last.getSeq());
+                }
+
+                if (System.nanoTime() - nextHeartbeat >= 0) {
+                    subscriptions.values().forEach(set -> set.forEach(subscription -> subscription.offer(HEARTBEAT)));
+                    nextHeartbeat = System.nanoTime() + heartbeatInterval.toNanos();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Ошибка БД не должна останавливать раздачу: повторяем чтение с той же позиции
+                sleepQuietly(heartbeatInterval.toMillis() / 10);
+            }
+        }
+    }
+
+    // Самая ранняя позиция, с которой подписчикам нужны события потока чтения; пусто — не все подписки
+    // еще запущены. Если позиция неизвестна ни одной (БД была недоступна при подписке) — текущая позиция ленты
+    private Optional<ChangeFeedCursor> earliestStart() {
+        ChangeFeedCursor earliest = null;
+        for (Set<Subscription> profileSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : profileSubscriptions) {
+                if (!subscription.started) {
+                    return Optional.empty();
+                }
+                ChangeFeedCursor readFrom = subscription.readFrom;
+                if (readFrom != null && (earliest == null || readFrom.isBefore(earliest))) {
+                    earliest = readFrom;
+                }
+            }
+        }
+        return Optional.of(earliest != null ? earliest : crimeJournalChangeFeedService.latestPosition());
+    }
+
+    private void publish(UUID profileId, Event event) {
+        Set<Subscription> profileSubscriptions = subscriptions.get(profileId);
+        if (profileSubscriptions != null) {
+            profileSubscriptions.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    private static Event toEvent(CrimeJournalChange change) {
+        return new Event(new ChangeFeedCursor(change.getTxid(), change.getSeq()), CrimeJournalChangeFeedService.toDTO(change));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Изменение и его позиция в ленте (id события)
+    private record Event(ChangeFeedCursor position, JournalChangeDTO change) {
+    }
+
+    // Подписчик: ограниченная очередь событий и признак того, что задача отправки уже запущена.
+    // Отправка начинается только после start: до этого события копятся в очереди, а пропущенные
+    // за время разрыва уходят первыми
+    private final class Subscription implements Runnable {
+
+        private final UUID profileId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean started;
+        private volatile ChangeFeedCursor readFrom; // после этой позиции события приходят от потока чтения
+        private volatile boolean overflowed;
+        private volatile ChangeFeedCursor resyncPosition; // id события resync: последнее известное изменение
+        private List<Event> missed = List.of();
+        // Последняя отправленная позиция: события не позже нее уже доставлены (или были до подписки).
+        // Используется только задачей отправки, которая у подписчика всегда одна
+        private ChangeFeedCursor sent;
+
+        private Subscription(UUID profileId, SseEmitter emitter) {
+            this.profileId = profileId;
+            this.emitter = emitter;
+        }
+
+        private void start(@Nullable ChangeFeedCursor after) {
+            start(after, List.of(), after);
+        }
+
+        private void start(@Nullable ChangeFeedCursor after, List<Event> missed, @Nullable ChangeFeedCursor readFrom) {
+            this.sent = after;
+            this.missed = missed;
+            this.readFrom = readFrom;
+            started = true;
+            schedule();
+        }
+
+        private void startWithResync(@Nullable ChangeFeedCursor latest) {
+            resyncPosition = latest;
+            overflowed = true;
+            start(latest);
+        }
+
+        // Не блокирует читающий поток: при заполненной очереди событие отбрасывается и клиенту уйдет resync
+        private void offer(Object event) {
+            if (!queue.offer(event) && event instanceof Event dropped) {
+                resyncPosition = dropped.position();
+                overflowed = true;
+            }
+            schedule();
+        }
+
+        // Запускает задачу отправки, если она еще не запущена
+        private void schedule() {
+            if (started && sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    sending.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (overflowed) {
+                    overflowed = false;
+                    queue.clear();
+                    missed = List.of();
+                    ChangeFeedCursor position = resyncPosition;
+                    SseEmitter.SseEventBuilder resync = SseEmitter.event();
+                    if (position != null) {
+                        resync.id(position.encode());
+                        sent = position;
+                    }
+                    emitter.send(resync.name("resync").data(profileId));
+                }
+                for (Event event : missed) {
+                    send(event);
+                }
+                missed = List.of();
+                Object event;
+                while ((event = queue.poll()) != null) {
+                    if (event == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        send((Event) event);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Клиент отключился: соединение закроет контейнер, здесь только снимаем подписку
+                close();
+                return;
+            } finally {
+                sending.set(false);
+            }
+            // Событие могло прийти между опустошением очереди и сбросом флага
+            if ((!queue.isEmpty() || overflowed) && !closed.get()) {
+                schedule();
+            }
+        }
+
+        private void send(Event event) throws IOException {
+            if (sent != null && !sent.isBefore(event.position())) {
+                return; // уже отправлено при догоне или произошло до подписки
+            }
+            emitter.send(SseEmitter.event()
+                    .id(event.position().encode())
+                    .name("journal")
+                    .data(event.change(), MediaType.APPLICATION_JSON));
+            sent = event.position();
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscriberCount.decrementAndGet();
+            subscriptions.computeIfPresent(profileId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            queue.clear();
+        }
+
+    }
+
+}
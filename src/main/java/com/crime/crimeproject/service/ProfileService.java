@@ -1,13 +1,21 @@
 package com.crime.crimeproject.service;
 
+import com.crime.crimeproject.cache.ProfileCache;
+import com.crime.crimeproject.dto.CacheStatsDTO;
 import com.crime.crimeproject.dto.ProfileDTO;
+import com.crime.crimeproject.dto.ProfileDeleteResultDTO;
 import com.crime.crimeproject.entity.Profile;
 import com.crime.crimeproject.exception.NotFoundException;
 import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.id.IdGenerator;
 import com.crime.crimeproject.repository.ProfileRepository;
 import com.crime.crimeproject.request.CreateProfileRequest;
 import lombok.AllArgsConstructor;
+import org.postgresql.util.PSQLException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -18,73 +26,112 @@ import java.util.stream.Collectors;
 public class ProfileService {
 
     private final ProfileRepository profileRepository;
+    private final ProfileCache profileCache;
+    private final CollectionVersionService collectionVersionService;
+    private final IdGenerator idGenerator;
 
-    // Создание нового профиля
+    // Создание нового профиля. Уникальность логина и почты проверяет сама БД при вставке:
+    // один запрос вместо двух предварительных поисков, и без гонки между проверкой и вставкой
     public ProfileDTO create(CreateProfileRequest request) {
-        // Проверка, существует ли уже профиль с таким логином
-        if (profileRepository.findByLogin(request.getLogin()).isPresent()) {
-            throw new ValidationException("Профиль с таким логином уже существует");
-        }
-
-        // Проверка, существует ли уже профиль с такой электронной почтой
-        if (profileRepository.findByEmail(request.getEmail()).isPresent()) {
-            throw new ValidationException("Профиль с такой электронной почтой уже существует");
-        }
-
         Profile newProfile = Profile.builder()
-                .id(UUID.randomUUID())
+                .id(idGenerator.nextId())
                 .login(request.getLogin())
                 .password(request.getPassword())
                 .email(request.getEmail())
                 .build();
 
-        profileRepository.save(newProfile);
+        try {
+            profileRepository.save(newProfile);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException(duplicateMessage(e));
+        }
+        collectionVersionService.profileChanged();
         return toDTO(newProfile);
     }
 
-    // Получение профиля по ID
+    // Получение профиля по ID. Как и поиск записи журнала по ID, идет через кэш и основную БД, не через реплику
     public ProfileDTO getById(UUID id) {
         return profileRepository.findById(id)
                 .map(this::toDTO)
                 .orElseThrow(() -> new NotFoundException("Профиль с ID " + id + " не найден"));
     }
 
-    // Получение всех профилей
+    // Получение всех профилей (с реплики, если она настроена)
+    @Transactional(readOnly = true)
     public List<ProfileDTO> getAll() {
         return profileRepository.findAll().stream().map(this::toDTO).collect(Collectors.toList());
     }
 
-    // Обновление профиля по ID
+    // Обновление профиля по ID одним запросом: отсутствие профиля определяется по числу обновленных строк,
+    // занятые логин или почта — по нарушенному ограничению уникальности
     public ProfileDTO update(UUID id, CreateProfileRequest request) {
-        Profile existingProfile = profileRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Профиль с ID " + id + " не найден"));
+        Profile profile = Profile.builder()
+                .id(id)
+                .login(request.getLogin())
+                .password(request.getPassword())
+                .email(request.getEmail())
+                .build();
 
-        // Проверка на уникальность нового логина и email, если они изменены
-        if (!existingProfile.getLogin().equals(request.getLogin()) && profileRepository.findByLogin(request.getLogin()).isPresent()) {
-            throw new ValidationException("Профиль с таким логином уже существует");
+        boolean updated;
+        try {
+            updated = profileRepository.update(profile);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException(duplicateMessage(e));
         }
-        if (!existingProfile.getEmail().equals(request.getEmail()) && profileRepository.findByEmail(request.getEmail()).isPresent()) {
-            throw new ValidationException("Профиль с такой электронной почтой уже существует");
+        if (!updated) {
+            throw new NotFoundException("Профиль с ID " + id + " не найден");
         }
+        collectionVersionService.profileChanged();
+        return toDTO(profile);
+    }
 
-        existingProfile.setLogin(request.getLogin());
-        existingProfile.setEmail(request.getEmail());
-        existingProfile.setPassword(request.getPassword());
-
-        boolean updated = profileRepository.update(existingProfile);
-        if (!updated) {
-            throw new RuntimeException("Обновление профиля не удалось");
+    // Удаление профиля по ID. С cascade = true вместе с профилем одним оператором удаляются его записи журнала,
+    // без него профиль с записями не удаляется
+    public ProfileDeleteResultDTO delete(UUID id, boolean cascade) {
+        int deletedJournalEntries = 0;
+        if (cascade) {
+            deletedJournalEntries = profileRepository.deleteWithJournalById(id)
+                    .orElseThrow(() -> new NotFoundException("Профиль с ID " + id + " не найден для удаления"));
+            if (deletedJournalEntries > 0) {
+                collectionVersionService.journalChanged();
+            }
+        } else {
+            try {
+                if (!profileRepository.deleteById(id)) {
+                    throw new NotFoundException("Профиль с ID " + id + " не найден для удаления");
+                }
+            } catch (DataIntegrityViolationException e) {
+                throw new ValidationException("У профиля с ID " + id + " есть записи в журнале: удалите их или используйте cascade=true");
+            }
         }
-        return toDTO(existingProfile);
+        collectionVersionService.profileChanged();
+
+        return ProfileDeleteResultDTO.builder()
+                .profileId(id)
+                .deletedProfiles(1)
+                .deletedJournalEntries(deletedJournalEntries)
+                .build();
+    }
+
+    // Статистика кэша профилей
+    public List<CacheStatsDTO> getCacheStats() {
+        return profileCache.stats();
     }
 
-    // Удаление профиля по ID
-    public boolean delete(UUID id) {
-        if (!profileRepository.existsById(id)) {
-            throw new NotFoundException("Профиль с ID " + id + " не найден для удаления");
+    // Сообщение об ошибке по имени нарушенного ограничения уникальности (UQ_profile_login / UQ_profile_email).
+    // Имя берется из поля constraint ответа сервера, а не из текста ошибки: текст зависит от lc_messages
+    static String duplicateMessage(DuplicateKeyException e) {
+        String constraint = e.getMostSpecificCause() instanceof PSQLException psqlException
+                            && psqlException.getServerErrorMessage() != null
+                ? psqlException.getServerErrorMessage().getConstraint()
+                : null;
+        if ("uq_profile_login".equals(constraint)) {
+            return "Профиль с таким логином уже существует";
+        }
+        if ("uq_profile_email".equals(constraint)) {
+            return "Профиль с такой электронной почтой уже существует";
         }
-        profileRepository.deleteById(id);
-        return true;
+        return "Профиль с такими данными уже существует";
     }
 
     // Вспомогательный метод для конвертации сущности в DTO
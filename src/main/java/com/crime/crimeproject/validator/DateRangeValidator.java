@@ -10,6 +10,8 @@ import java.util.Date;
 
 public class DateRangeValidator implements ConstraintValidator<DateRange, Date> {
 
+    public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+
     @Override
     public void initialize(DateRange constraintAnnotation) {
     }
@@ -21,9 +23,11 @@ public class DateRangeValidator implements ConstraintValidator<DateRange, Date>
         }
 
         LocalDate dateCrime = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        LocalDate minDate = LocalDate.of(1900, 1, 1);
-        LocalDate maxDate = LocalDate.now();
+        return isWithinRange(dateCrime);
+    }
 
-        return !dateCrime.isBefore(minDate) && !dateCrime.isAfter(maxDate);
+    // Та же граница, что и для даты преступления: от '1900-01-01' до текущей даты включительно
+    public static boolean isWithinRange(LocalDate date) {
+        return !date.isBefore(MIN_DATE) && !date.isAfter(LocalDate.now());
     }
 }
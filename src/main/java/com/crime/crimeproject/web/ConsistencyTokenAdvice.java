@@ -0,0 +1,111 @@
+package com.crime.crimeproject.web;
+
+import com.crime.crimeproject.datasource.ReadConsistency;
+import com.crime.crimeproject.datasource.ReplicaLagMonitor;
+import com.crime.crimeproject.exception.ValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Чтение собственных записей при работе с репликой. Ответ на успешный изменяющий запрос (POST, PUT, PATCH, DELETE)
+// содержит заголовок X-Consistency-Token — позицию WAL основной БД после записи. Клиент передает его в следующих
+// запросах; пока реплика не применила WAL до этой позиции, чтение такого клиента идет в основную БД.
+// Маршрут чтения (ReadConsistency) решается здесь один раз на запрос, до ETag и до первого соединения с БД
+@ControllerAdvice
+@ConditionalOnProperty(name = "crime.datasource.replica.enabled", havingValue = "true")
+public class ConsistencyTokenAdvice implements ResponseBodyAdvice<Object>, AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    public static final String HEADER = "X-Consistency-Token";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ConsistencyTokenAdvice(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String token = request.getHeader(HEADER);
+        boolean ownWriteReplayed = token == null || replicaLagMonitor.hasReplayed(parse(token));
+        ReadConsistency.Route replica = replicaLagMonitor.replicaRoute();
+        ReadConsistency.route(replica != null && ownWriteReplayed ? replica : ReadConsistency.PRIMARY);
+        return true;
+    }
+
+    // Ответы с телом получают токен в beforeBodyWrite, здесь — ответы без тела (void-обработчики)
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (!response.isCommitted() && response.getHeader(HEADER) == null) {
+            addToken(request.getMethod(), response);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadConsistency.clear();
+    }
+
+    // Асинхронные ответы (выгрузка, SSE) дописываются в другом потоке, а этот поток освобождается уже сейчас
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadConsistency.clear();
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (response instanceof ServletServerHttpResponse servletResponse) {
+            addToken(request.getMethod().name(), servletResponse.getServletResponse());
+        }
+        return body;
+    }
+
+    private void addToken(String method, HttpServletResponse response) {
+        if (isSafe(method) || response.getStatus() >= 400) {
+            return;
+        }
+        try {
+            response.setHeader(HEADER, Long.toString(replicaLagMonitor.primaryPosition()));
+        } catch (DataAccessException e) {
+            // Запись уже выполнена: без токена клиент лишь может прочитать с реплики данные до нее
+        }
+    }
+
+    private static boolean isSafe(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private static long parse(String token) {
+        try {
+            return Long.parseLong(token);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Некорректный заголовок " + HEADER);
+        }
+    }
+
+}
@@ -0,0 +1,3 @@
+CREATE INDEX idx_crime_journal_date_crime_id ON crime_journal (date_crime, id);
+CREATE INDEX idx_crime_journal_closed_date_crime_id ON crime_journal (is_closed, date_crime, id);
+CREATE INDEX idx_crime_journal_profile_date_crime_id ON crime_journal (profile_id, date_crime, id);
@@ -0,0 +1,2 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_crime_journal_description_trgm ON crime_journal USING gin (description gin_trgm_ops);
\ No newline at end of file
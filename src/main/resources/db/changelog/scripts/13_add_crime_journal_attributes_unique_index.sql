@@ -0,0 +1 @@
+CREATE UNIQUE INDEX uq_crime_journal_attributes ON crime_journal (description, date_crime, is_closed, profile_id);
\ No newline at end of file
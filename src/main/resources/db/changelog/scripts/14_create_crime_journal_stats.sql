@@ -0,0 +1,63 @@
+--liquibase formatted sql
+
+--changeset crime:14_create_crime_journal_stats splitStatements:false
+CREATE TABLE crime_journal_stats (
+    profile_id uuid NOT NULL,
+    month date NOT NULL,
+    is_closed boolean NOT NULL,
+    crime_count bigint NOT NULL,
+    PRIMARY KEY (profile_id, month, is_closed)
+);
+
+INSERT INTO crime_journal_stats (profile_id, month, is_closed, crime_count)
+SELECT profile_id, date_trunc('month', date_crime)::date, is_closed, count(*)
+FROM crime_journal
+GROUP BY 1, 2, 3;
+
+-- Применяет к сводной таблице изменения одного оператора целиком (через transition tables),
+-- поэтому пакетная вставка или удаление по профилю обновляют по одной строке сводки на группу.
+-- ORDER BY задает одинаковый порядок блокировок строк сводки и исключает взаимные блокировки
+CREATE FUNCTION crime_journal_stats_refresh() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, date_trunc('month', date_crime)::date, is_closed, count(*)
+        FROM new_rows
+        GROUP BY 1, 2, 3
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, date_trunc('month', date_crime)::date, is_closed, -count(*)
+        FROM old_rows
+        GROUP BY 1, 2, 3
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+    ELSE
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, month, is_closed, sum(delta)
+        FROM (
+            SELECT profile_id, date_trunc('month', date_crime)::date AS month, is_closed, 1 AS delta FROM new_rows
+            UNION ALL
+            SELECT profile_id, date_trunc('month', date_crime)::date AS month, is_closed, -1 AS delta FROM old_rows
+        ) changes
+        GROUP BY 1, 2, 3
+        HAVING sum(delta) <> 0
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_crime_journal_stats_insert AFTER INSERT ON crime_journal
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
+
+CREATE TRIGGER trg_crime_journal_stats_update AFTER UPDATE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
+
+CREATE TRIGGER trg_crime_journal_stats_delete AFTER DELETE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
\ No newline at end of file
@@ -0,0 +1,109 @@
+--liquibase formatted sql
+
+--changeset crime:15_partition_crime_journal_by_date_crime splitStatements:false
+-- Журнал секционируется по году date_crime: запросы за период читают только нужные секции.
+-- Записи до 2000 года лежат в одной архивной секции, даты вне созданных секций — в секции по умолчанию
+ALTER TABLE crime_journal RENAME TO crime_journal_unpartitioned;
+ALTER INDEX crime_journal_pkey RENAME TO crime_journal_unpartitioned_pkey;
+
+-- Первичный ключ секционированной таблицы обязан включать ключ секционирования
+CREATE TABLE crime_journal (
+    id uuid NOT NULL,
+    description character varying(100) NOT NULL,
+    date_crime date NOT NULL,
+    is_closed boolean NOT NULL,
+    profile_id uuid NOT NULL,
+    CONSTRAINT crime_journal_pkey PRIMARY KEY (id, date_crime),
+    CONSTRAINT chk_crime_journal_date_crime CHECK(date_crime >= '1900-01-01'::date AND date_crime <= CURRENT_DATE),
+    CONSTRAINT chk_crime_journal_description CHECK(length(description::text) >= 4 AND length(description::text) <= 256)
+) PARTITION BY RANGE (date_crime);
+
+CREATE TABLE crime_journal_before_2000 PARTITION OF crime_journal FOR VALUES FROM (MINVALUE) TO ('2000-01-01');
+CREATE TABLE crime_journal_default PARTITION OF crime_journal DEFAULT;
+
+-- Создает недостающие годовые секции crime_journal_yYYYY за годы from_year..to_year, возвращает число созданных.
+-- Строки этих лет, попавшие в секцию по умолчанию, переносятся в новую секцию напрямую (минуя триггеры
+-- статистики родительской таблицы, число записей не меняется). Секция собирается отдельно и подключается
+-- через ATTACH PARTITION, которому на родительской таблице не нужна исключительная блокировка
+CREATE FUNCTION crime_journal_ensure_partitions(from_year integer, to_year integer) RETURNS integer AS $$
+DECLARE
+    partition_year integer;
+    partition_name text;
+    range_start date;
+    range_end date;
+    created integer := 0;
+BEGIN
+    FOR partition_year IN from_year..to_year LOOP
+        partition_name := 'crime_journal_y' || partition_year;
+        CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+
+        range_start := make_date(partition_year, 1, 1);
+        range_end := make_date(partition_year + 1, 1, 1);
+        EXECUTE format('CREATE TABLE %I (LIKE crime_journal INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+        EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I CHECK (date_crime >= %L AND date_crime < %L)',
+                       partition_name, partition_name || '_range', range_start, range_end);
+        EXECUTE format('WITH moved AS (DELETE FROM crime_journal_default WHERE date_crime >= %L AND date_crime < %L RETURNING *) ' ||
+                       'INSERT INTO %I SELECT * FROM moved', range_start, range_end, partition_name);
+        EXECUTE format('ALTER TABLE crime_journal ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, range_start, range_end);
+        -- Ограничение нужно было только для того, чтобы ATTACH не проверял строки секции повторно
+        EXECUTE format('ALTER TABLE %I DROP CONSTRAINT %I', partition_name, partition_name || '_range');
+        created := created + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Отключает годовую секцию от журнала (таблица остается для архивации) и вычитает её строки из сводной статистики.
+-- DETACH берет исключительную блокировку родительской таблицы лишь на мгновение, а lock_timeout не дает ему
+-- долго ждать в очереди блокировок и задерживать остальные запросы: при таймауте вызов нужно повторить
+CREATE FUNCTION crime_journal_detach_partition(partition_year integer, wait_lock interval) RETURNS bigint AS $$
+DECLARE
+    partition_name text := 'crime_journal_y' || partition_year;
+    detached_rows bigint;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'crime_journal'::regclass) THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM set_config('lock_timeout', (extract(epoch FROM wait_lock) * 1000)::bigint::text, true);
+    EXECUTE format('ALTER TABLE crime_journal DETACH PARTITION %I', partition_name);
+    PERFORM set_config('lock_timeout', '0', true);
+
+    EXECUTE format('SELECT count(*) FROM %I', partition_name) INTO detached_rows;
+    EXECUTE format('INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count) ' ||
+                   'SELECT profile_id, date_trunc(''month'', date_crime)::date, is_closed, -count(*) FROM %I ' ||
+                   'GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 ' ||
+                   'ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count',
+                   partition_name);
+    RETURN detached_rows;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT crime_journal_ensure_partitions(2000, extract(year FROM CURRENT_DATE)::integer + 1);
+
+-- Копирование до создания триггеров статистики: сводная таблица уже учитывает эти строки
+INSERT INTO crime_journal SELECT * FROM crime_journal_unpartitioned;
+DROP TABLE crime_journal_unpartitioned;
+
+ALTER TABLE crime_journal
+    ADD CONSTRAINT FK_crime_journal_profileId FOREIGN KEY (profile_id) REFERENCES profile (id);
+
+CREATE INDEX idx_crime_journal_date_crime_id ON crime_journal (date_crime, id);
+CREATE INDEX idx_crime_journal_closed_date_crime_id ON crime_journal (is_closed, date_crime, id);
+CREATE INDEX idx_crime_journal_profile_date_crime_id ON crime_journal (profile_id, date_crime, id);
+CREATE INDEX idx_crime_journal_description_trgm ON crime_journal USING gin (description gin_trgm_ops);
+CREATE UNIQUE INDEX uq_crime_journal_attributes ON crime_journal (description, date_crime, is_closed, profile_id);
+
+CREATE TRIGGER trg_crime_journal_stats_insert AFTER INSERT ON crime_journal
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
+
+CREATE TRIGGER trg_crime_journal_stats_update AFTER UPDATE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
+
+CREATE TRIGGER trg_crime_journal_stats_delete AFTER DELETE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_stats_refresh();
\ No newline at end of file
@@ -0,0 +1 @@
+CREATE INDEX idx_crime_journal_date_crime_closed_covering ON crime_journal (date_crime, is_closed, id) INCLUDE (description, profile_id);
\ No newline at end of file
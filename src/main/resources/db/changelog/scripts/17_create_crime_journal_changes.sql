@@ -0,0 +1,51 @@
+--liquibase formatted sql
+
+--changeset crime:17_create_crime_journal_changes splitStatements:false
+-- Журнал изменений (outbox) для ленты GET /journal/changes. Строки пишут триггеры в той же транзакции,
+-- что и само изменение, поэтому в ленту попадают только зафиксированные изменения и все пути записи
+-- (пакеты, асинхронная вставка, каскадное удаление профиля). txid — транзакция изменения: лента отдает
+-- строки в порядке (txid, seq) и только завершенных транзакций, иначе поздно зафиксированная транзакция
+-- с меньшим seq оказалась бы позади курсора читателя
+CREATE TABLE crime_journal_changes (
+    seq bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    txid xid8 NOT NULL DEFAULT pg_current_xact_id(),
+    operation character varying(6) NOT NULL,
+    journal_id uuid NOT NULL,
+    description character varying(100) NOT NULL,
+    date_crime date NOT NULL,
+    is_closed boolean NOT NULL,
+    profile_id uuid NOT NULL,
+    changed_at timestamp with time zone NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_crime_journal_changes_txid_seq ON crime_journal_changes (txid, seq);
+-- Строки только добавляются, changed_at растет вместе с физическим порядком: BRIN для очистки по сроку хранения
+CREATE INDEX idx_crime_journal_changes_changed_at ON crime_journal_changes USING brin (changed_at);
+
+-- Записывает изменения одного оператора целиком (через transition tables), как и триггеры статистики.
+-- Для удаления сохраняются последние значения записи. Перенос строк между секциями функцией
+-- crime_journal_ensure_partitions идет мимо родительской таблицы и в журнал изменений не попадает
+CREATE FUNCTION crime_journal_changes_capture() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id)
+        SELECT TG_OP, id, description, date_crime, is_closed, profile_id FROM old_rows;
+    ELSE
+        INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id)
+        SELECT TG_OP, id, description, date_crime, is_closed, profile_id FROM new_rows;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_crime_journal_changes_insert AFTER INSERT ON crime_journal
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_changes_capture();
+
+CREATE TRIGGER trg_crime_journal_changes_update AFTER UPDATE ON crime_journal
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_changes_capture();
+
+CREATE TRIGGER trg_crime_journal_changes_delete AFTER DELETE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_changes_capture();
\ No newline at end of file
@@ -0,0 +1,39 @@
+--liquibase formatted sql
+
+--changeset crime:18_notify_collection_changes splitStatements:false
+-- Уведомление crime_collection_changed (payload — 'journal' или 'profile') о каждом операторе, изменившем строки.
+-- NOTIFY доставляется только после фиксации транзакции и всем слушающим узлам: по нему каждый экземпляр
+-- приложения сбрасывает ETag коллекции, даже если запись прошла через другой экземпляр или мимо приложения.
+-- Одинаковые уведомления одной транзакции PostgreSQL объединяет, поэтому пакет дает одно уведомление
+CREATE FUNCTION crime_collection_notify() RETURNS trigger AS $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM changed_rows) THEN
+        PERFORM pg_notify('crime_collection_changed', TG_ARGV[0]);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_crime_journal_notify_insert AFTER INSERT ON crime_journal
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('journal');
+
+CREATE TRIGGER trg_crime_journal_notify_update AFTER UPDATE ON crime_journal
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('journal');
+
+CREATE TRIGGER trg_crime_journal_notify_delete AFTER DELETE ON crime_journal
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('journal');
+
+CREATE TRIGGER trg_profile_notify_insert AFTER INSERT ON profile
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('profile');
+
+CREATE TRIGGER trg_profile_notify_update AFTER UPDATE ON profile
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('profile');
+
+CREATE TRIGGER trg_profile_notify_delete AFTER DELETE ON profile
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_collection_notify('profile');
\ No newline at end of file
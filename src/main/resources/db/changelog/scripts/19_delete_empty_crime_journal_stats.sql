@@ -0,0 +1,78 @@
+--liquibase formatted sql
+
+--changeset crime:19_delete_empty_crime_journal_stats splitStatements:false
+-- Строки сводки, счетчик которых после удаления или изменения записей стал нулевым, удаляются тем же триггером:
+-- иначе сводка только росла бы (профили и месяцы, записей которых давно нет). Удаляются лишь группы,
+-- затронутые оператором: их строки уже заблокированы upsert'ом, а параллельная вставка в ту же группу
+-- после удаления строки просто вставит её заново (ON CONFLICT повторяет попытку)
+CREATE OR REPLACE FUNCTION crime_journal_stats_refresh() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, date_trunc('month', date_crime)::date, is_closed, count(*)
+        FROM new_rows
+        GROUP BY 1, 2, 3
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+    ELSIF TG_OP = 'DELETE' THEN
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, date_trunc('month', date_crime)::date, is_closed, -count(*)
+        FROM old_rows
+        GROUP BY 1, 2, 3
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+
+        DELETE FROM crime_journal_stats s
+        USING (SELECT DISTINCT profile_id, date_trunc('month', date_crime)::date AS month, is_closed FROM old_rows) g
+        WHERE s.profile_id = g.profile_id AND s.month = g.month AND s.is_closed = g.is_closed AND s.crime_count = 0;
+    ELSE
+        INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count)
+        SELECT profile_id, month, is_closed, sum(delta)
+        FROM (
+            SELECT profile_id, date_trunc('month', date_crime)::date AS month, is_closed, 1 AS delta FROM new_rows
+            UNION ALL
+            SELECT profile_id, date_trunc('month', date_crime)::date AS month, is_closed, -1 AS delta FROM old_rows
+        ) changes
+        GROUP BY 1, 2, 3
+        HAVING sum(delta) <> 0
+        ORDER BY 1, 2, 3
+        ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count;
+
+        -- Обнулиться могли только группы, из которых записи ушли
+        DELETE FROM crime_journal_stats s
+        USING (SELECT DISTINCT profile_id, date_trunc('month', date_crime)::date AS month, is_closed FROM old_rows) g
+        WHERE s.profile_id = g.profile_id AND s.month = g.month AND s.is_closed = g.is_closed AND s.crime_count = 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- То же при отключении секции: её строки вычитаются из сводки, опустевшие группы удаляются
+CREATE OR REPLACE FUNCTION crime_journal_detach_partition(partition_year integer, wait_lock interval) RETURNS bigint AS $$
+DECLARE
+    partition_name text := 'crime_journal_y' || partition_year;
+    detached_rows bigint;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'crime_journal'::regclass) THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM set_config('lock_timeout', (extract(epoch FROM wait_lock) * 1000)::bigint::text, true);
+    EXECUTE format('ALTER TABLE crime_journal DETACH PARTITION %I', partition_name);
+    PERFORM set_config('lock_timeout', '0', true);
+
+    EXECUTE format('SELECT count(*) FROM %I', partition_name) INTO detached_rows;
+    EXECUTE format('INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count) ' ||
+                   'SELECT profile_id, date_trunc(''month'', date_crime)::date, is_closed, -count(*) FROM %I ' ||
+                   'GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 ' ||
+                   'ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count',
+                   partition_name);
+    DELETE FROM crime_journal_stats
+    WHERE crime_count = 0 AND month >= make_date(partition_year, 1, 1) AND month < make_date(partition_year + 1, 1, 1);
+    RETURN detached_rows;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Нулевые строки, накопившиеся до этого изменения
+DELETE FROM crime_journal_stats WHERE crime_count = 0;
\ No newline at end of file
@@ -0,0 +1,81 @@
+--liquibase formatted sql
+
+--changeset crime:20_crime_journal_ids_and_detach_changes splitStatements:false
+-- Первичный ключ секционированного журнала — (id, date_crime): уникальность id он проверяет только внутри секции,
+-- и тот же id с другой датой мог бы оказаться в другой секции. Глобальную уникальность обеспечивает таблица
+-- crime_journal_ids, которую ведут триггеры журнала (ценой еще одной вставки в индекс на каждую запись).
+-- Перенос строк между секциями функцией crime_journal_ensure_partitions id не меняет и идет мимо триггеров
+CREATE TABLE crime_journal_ids (
+    id uuid PRIMARY KEY
+);
+
+INSERT INTO crime_journal_ids SELECT id FROM crime_journal;
+
+CREATE FUNCTION crime_journal_ids_refresh() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO crime_journal_ids SELECT id FROM new_rows;
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM crime_journal_ids i USING old_rows o WHERE i.id = o.id;
+    ELSE
+        -- Приложение id не меняет, но прямой UPDATE в БД может
+        DELETE FROM crime_journal_ids i
+        USING (SELECT id FROM old_rows EXCEPT SELECT id FROM new_rows) o
+        WHERE i.id = o.id;
+        INSERT INTO crime_journal_ids SELECT id FROM new_rows EXCEPT SELECT id FROM old_rows;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_crime_journal_ids_insert AFTER INSERT ON crime_journal
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_ids_refresh();
+
+CREATE TRIGGER trg_crime_journal_ids_update AFTER UPDATE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_ids_refresh();
+
+CREATE TRIGGER trg_crime_journal_ids_delete AFTER DELETE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_ids_refresh();
+
+-- Отключение секции делает с ее строками то же, что их удаление, но DETACH не вызывает триггеры журнала.
+-- Поэтому функция сама вычитает строки из сводки, освобождает их id, записывает события DELETE в ленту изменений
+-- (для большой секции это столько же строк в crime_journal_changes) и шлет уведомление crime_collection_changed.
+-- Годы до 2000 лежат в одной архивной секции crime_journal_before_2000: любой такой год отключает ее целиком
+CREATE OR REPLACE FUNCTION crime_journal_detach_partition(partition_year integer, wait_lock interval) RETURNS bigint AS $$
+DECLARE
+    partition_name text := CASE WHEN partition_year < 2000 THEN 'crime_journal_before_2000'
+                                ELSE 'crime_journal_y' || partition_year END;
+    range_start date := CASE WHEN partition_year < 2000 THEN '-infinity'::date ELSE make_date(partition_year, 1, 1) END;
+    range_end date := CASE WHEN partition_year < 2000 THEN make_date(2000, 1, 1) ELSE make_date(partition_year + 1, 1, 1) END;
+    detached_rows bigint;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'crime_journal'::regclass) THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM set_config('lock_timeout', (extract(epoch FROM wait_lock) * 1000)::bigint::text, true);
+    EXECUTE format('ALTER TABLE crime_journal DETACH PARTITION %I', partition_name);
+    PERFORM set_config('lock_timeout', '0', true);
+
+    EXECUTE format('SELECT count(*) FROM %I', partition_name) INTO detached_rows;
+    EXECUTE format('INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count) ' ||
+                   'SELECT profile_id, date_trunc(''month'', date_crime)::date, is_closed, -count(*) FROM %I ' ||
+                   'GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 ' ||
+                   'ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count',
+                   partition_name);
+    DELETE FROM crime_journal_stats WHERE crime_count = 0 AND month >= range_start AND month < range_end;
+
+    EXECUTE format('DELETE FROM crime_journal_ids i USING %I p WHERE i.id = p.id', partition_name);
+    EXECUTE format('INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id) ' ||
+                   'SELECT ''DELETE'', id, description, date_crime, is_closed, profile_id FROM %I ORDER BY date_crime, id',
+                   partition_name);
+    IF detached_rows > 0 THEN
+        PERFORM pg_notify('crime_collection_changed', 'journal');
+    END IF;
+    RETURN detached_rows;
+END;
+$$ LANGUAGE plpgsql;
\ No newline at end of file
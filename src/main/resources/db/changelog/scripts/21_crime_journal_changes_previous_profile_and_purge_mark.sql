@@ -0,0 +1,41 @@
+--liquibase formatted sql
+
+--changeset crime:21_crime_journal_changes_previous_profile_and_purge_mark splitStatements:false
+-- UPDATE, перенесший запись к другому профилю, запоминает прежний профиль: без него подписчики прежнего профиля
+-- не узнали бы, что запись из их списка ушла
+ALTER TABLE crime_journal_changes ADD COLUMN previous_profile_id uuid;
+
+CREATE OR REPLACE FUNCTION crime_journal_changes_capture() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id)
+        SELECT TG_OP, id, description, date_crime, is_closed, profile_id FROM old_rows;
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- id глобально уникален (crime_journal_ids); запись с измененным id прежнего профиля не получает
+        INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id, previous_profile_id)
+        SELECT TG_OP, n.id, n.description, n.date_crime, n.is_closed, n.profile_id,
+               CASE WHEN o.profile_id IS DISTINCT FROM n.profile_id THEN o.profile_id END
+        FROM new_rows n
+        LEFT JOIN old_rows o ON o.id = n.id;
+    ELSE
+        INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id)
+        SELECT TG_OP, id, description, date_crime, is_closed, profile_id FROM new_rows;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER trg_crime_journal_changes_update ON crime_journal;
+CREATE TRIGGER trg_crime_journal_changes_update AFTER UPDATE ON crime_journal
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION crime_journal_changes_capture();
+
+-- Наибольшая позиция (txid, seq), удаленная по сроку хранения. Курсор позади нее мог пропустить удаленные
+-- изменения: такой потребитель должен заново прочитать журнал, а не продолжать ленту с дырой
+CREATE TABLE crime_journal_changes_purged (
+    id boolean PRIMARY KEY DEFAULT true CHECK (id),
+    txid xid8 NOT NULL,
+    seq bigint NOT NULL
+);
+
+INSERT INTO crime_journal_changes_purged (txid, seq) VALUES ('0'::xid8, 0);
\ No newline at end of file
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset crime:22_notify_collection_changes_with_ids splitStatements:false
+-- Уведомление crime_collection_changed несет ID измененных строк: 'journal:<id>,<id>,...' или 'profile:<id>,...'.
+-- По ним каждый экземпляр удаляет записи из своего кэша (CrimeJournalCache, ProfileCache), даже если запись
+-- прошла через другой экземпляр. Оператор, изменивший больше 100 строк, уведомляет одним именем коллекции
+-- ('journal' или 'profile') — так payload остается далеко от предела NOTIFY в 8000 байт, а слушатель очищает кэш целиком
+CREATE OR REPLACE FUNCTION crime_collection_notify() RETURNS trigger AS $$
+DECLARE
+    ids text[];
+BEGIN
+    SELECT array_agg(id::text) INTO ids FROM (SELECT id FROM changed_rows LIMIT 101) changed;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    IF array_length(ids, 1) > 100 THEN
+        PERFORM pg_notify('crime_collection_changed', TG_ARGV[0]);
+    ELSE
+        PERFORM pg_notify('crime_collection_changed', TG_ARGV[0] || ':' || array_to_string(ids, ','));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
\ No newline at end of file
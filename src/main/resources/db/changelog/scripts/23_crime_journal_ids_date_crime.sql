@@ -0,0 +1,33 @@
+--liquibase formatted sql
+
+--changeset crime:23_crime_journal_ids_date_crime splitStatements:false
+-- crime_journal_ids хранит и date_crime записи: запрос только по id сначала находит ее дату по первичному ключу
+-- crime_journal_ids, и PostgreSQL во время выполнения отсекает все секции журнала, кроме одной. Без этого поиск,
+-- обновление и удаление по id проверяли индекс каждой из ~30 секций. Цена — обновление строки crime_journal_ids
+-- при изменении date_crime
+ALTER TABLE crime_journal_ids ADD COLUMN date_crime date;
+
+UPDATE crime_journal_ids i SET date_crime = j.date_crime FROM crime_journal j WHERE j.id = i.id;
+
+ALTER TABLE crime_journal_ids ALTER COLUMN date_crime SET NOT NULL;
+
+CREATE OR REPLACE FUNCTION crime_journal_ids_refresh() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO crime_journal_ids (id, date_crime) SELECT id, date_crime FROM new_rows;
+    ELSIF TG_OP = 'DELETE' THEN
+        DELETE FROM crime_journal_ids i USING old_rows o WHERE i.id = o.id;
+    ELSE
+        -- Приложение id не меняет, но прямой UPDATE в БД может
+        DELETE FROM crime_journal_ids i
+        USING (SELECT id FROM old_rows EXCEPT SELECT id FROM new_rows) o
+        WHERE i.id = o.id;
+        INSERT INTO crime_journal_ids (id, date_crime)
+        SELECT id, date_crime FROM new_rows WHERE id IN (SELECT id FROM new_rows EXCEPT SELECT id FROM old_rows);
+        UPDATE crime_journal_ids i SET date_crime = n.date_crime
+        FROM new_rows n
+        WHERE i.id = n.id AND i.date_crime <> n.date_crime;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
\ No newline at end of file
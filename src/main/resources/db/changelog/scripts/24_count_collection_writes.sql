@@ -0,0 +1,77 @@
+--liquibase formatted sql
+
+--changeset crime:24_count_collection_writes splitStatements:false
+-- Общая для всех экземпляров версия коллекции для ETag: число зафиксированных операторов, изменивших ее строки.
+-- Каждый такой оператор добавляет строку в crime_collection_writes (только вставка, строки не блокируют
+-- друг друга, в отличие от счетчика в одной строке). Версия — compacted_writes + число видимых строк коллекции:
+-- набор видимых транзакций только растет, поэтому равные версии означают одни и те же данные на любом узле,
+-- а прерванная транзакция версию не меняет. Сжатие переносит видимые строки в compacted_writes одной транзакцией,
+-- и читатель видит либо строки, либо уже увеличенный счетчик
+CREATE TABLE crime_collection_writes (
+    collection character varying(16) NOT NULL
+);
+
+CREATE INDEX idx_crime_collection_writes_collection ON crime_collection_writes (collection);
+
+CREATE TABLE crime_collection_versions (
+    collection character varying(16) PRIMARY KEY,
+    compacted_writes bigint NOT NULL
+);
+
+INSERT INTO crime_collection_versions (collection, compacted_writes) VALUES ('journal', 0), ('profile', 0);
+
+CREATE OR REPLACE FUNCTION crime_collection_notify() RETURNS trigger AS $$
+DECLARE
+    ids text[];
+BEGIN
+    SELECT array_agg(id::text) INTO ids FROM (SELECT id FROM changed_rows LIMIT 101) changed;
+    IF ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+    INSERT INTO crime_collection_writes (collection) VALUES (TG_ARGV[0]);
+    IF array_length(ids, 1) > 100 THEN
+        PERFORM pg_notify('crime_collection_changed', TG_ARGV[0]);
+    ELSE
+        PERFORM pg_notify('crime_collection_changed', TG_ARGV[0] || ':' || array_to_string(ids, ','));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Отключение секции идет мимо триггеров журнала: запись о нем функция добавляет сама
+CREATE OR REPLACE FUNCTION crime_journal_detach_partition(partition_year integer, wait_lock interval) RETURNS bigint AS $$
+DECLARE
+    partition_name text := CASE WHEN partition_year < 2000 THEN 'crime_journal_before_2000'
+                                ELSE 'crime_journal_y' || partition_year END;
+    range_start date := CASE WHEN partition_year < 2000 THEN '-infinity'::date ELSE make_date(partition_year, 1, 1) END;
+    range_end date := CASE WHEN partition_year < 2000 THEN make_date(2000, 1, 1) ELSE make_date(partition_year + 1, 1, 1) END;
+    detached_rows bigint;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_inherits
+                   WHERE inhrelid = to_regclass(partition_name) AND inhparent = 'crime_journal'::regclass) THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM set_config('lock_timeout', (extract(epoch FROM wait_lock) * 1000)::bigint::text, true);
+    EXECUTE format('ALTER TABLE crime_journal DETACH PARTITION %I', partition_name);
+    PERFORM set_config('lock_timeout', '0', true);
+
+    EXECUTE format('SELECT count(*) FROM %I', partition_name) INTO detached_rows;
+    EXECUTE format('INSERT INTO crime_journal_stats AS s (profile_id, month, is_closed, crime_count) ' ||
+                   'SELECT profile_id, date_trunc(''month'', date_crime)::date, is_closed, -count(*) FROM %I ' ||
+                   'GROUP BY 1, 2, 3 ORDER BY 1, 2, 3 ' ||
+                   'ON CONFLICT (profile_id, month, is_closed) DO UPDATE SET crime_count = s.crime_count + EXCLUDED.crime_count',
+                   partition_name);
+    DELETE FROM crime_journal_stats WHERE crime_count = 0 AND month >= range_start AND month < range_end;
+
+    EXECUTE format('DELETE FROM crime_journal_ids i USING %I p WHERE i.id = p.id', partition_name);
+    EXECUTE format('INSERT INTO crime_journal_changes (operation, journal_id, description, date_crime, is_closed, profile_id) ' ||
+                   'SELECT ''DELETE'', id, description, date_crime, is_closed, profile_id FROM %I ORDER BY date_crime, id',
+                   partition_name);
+    IF detached_rows > 0 THEN
+        INSERT INTO crime_collection_writes (collection) VALUES ('journal');
+        PERFORM pg_notify('crime_collection_changed', 'journal');
+    END IF;
+    RETURN detached_rows;
+END;
+$$ LANGUAGE plpgsql;
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.crime.crimeproject.cache;
+
+import com.crime.crimeproject.entity.CrimeJournal;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrimeJournalCacheTest {
+
+    private final CrimeJournalCache cache = new CrimeJournalCache(100, Duration.ofMinutes(5), Duration.ofSeconds(30));
+
+    @Test
+    void loadedEntryAndMissingIdAreCached() {
+        CrimeJournal journal = journal(UUID.randomUUID(), "Кража велосипеда");
+        UUID missing = UUID.randomUUID();
+
+        cache.putLoaded(journal, cache.loadStamp(journal.getId()));
+        cache.putMissing(missing, cache.loadStamp(missing));
+
+        assertThat(cache.getIfPresent(journal.getId())).contains(journal);
+        assertThat(cache.getIfPresent(missing)).isEmpty();
+        assertThat(cache.getIfPresent(UUID.randomUUID())).isNull();
+    }
+
+    @Test
+    void loadStartedBeforeEvictionIsNotCached() {
+        CrimeJournal stale = journal(UUID.randomUUID(), "Кража велосипеда");
+
+        long stamp = cache.loadStamp(stale.getId());
+        cache.evict(stale.getId());
+        cache.putLoaded(stale, stamp);
+
+        assertThat(cache.getIfPresent(stale.getId())).isNull();
+    }
+
+    @Test
+    void missBeforeInsertDoesNotHideInsertedEntry() {
+        CrimeJournal inserted = journal(UUID.randomUUID(), "Кража велосипеда");
+
+        long stamp = cache.loadStamp(inserted.getId());
+        cache.put(inserted);
+        cache.putMissing(inserted.getId(), stamp);
+
+        assertThat(cache.getIfPresent(inserted.getId())).contains(inserted);
+    }
+
+    @Test
+    void loadStartedBeforeFullInvalidationIsNotCached() {
+        CrimeJournal stale = journal(UUID.randomUUID(), "Кража велосипеда");
+
+        long stamp = cache.loadStamp(stale.getId());
+        cache.invalidateAll();
+        cache.putLoaded(stale, stamp);
+
+        assertThat(cache.getIfPresent(stale.getId())).isNull();
+    }
+
+    @Test
+    void evictionOfOtherIdsDoesNotBlockCaching() {
+        CrimeJournal journal = journal(new UUID(0, 1), "Кража велосипеда");
+
+        long stamp = cache.loadStamp(journal.getId());
+        cache.evictAll(List.of(new UUID(0, 2), new UUID(0, 3)));
+        cache.putLoaded(journal, stamp);
+
+        assertThat(cache.getIfPresent(journal.getId())).isEqualTo(Optional.of(journal));
+    }
+
+    private static CrimeJournal journal(UUID id, String description) {
+        return CrimeJournal.builder()
+                .id(id)
+                .description(description)
+                .dateCrime(new Date())
+                .isClosed(false)
+                .profileId(UUID.randomUUID())
+                .build();
+    }
+
+}
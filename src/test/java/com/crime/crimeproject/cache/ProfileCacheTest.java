@@ -0,0 +1,69 @@
+package com.crime.crimeproject.cache;
+
+import com.crime.crimeproject.entity.Profile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileCacheTest {
+
+    private final ProfileCache cache = new ProfileCache(100, Duration.ofMinutes(10));
+
+    @Test
+    void loadedProfileIsCachedUnderAllKeys() {
+        Profile profile = profile("alice", "alice@example.com");
+
+        cache.putLoaded(profile, cache.loadStamp());
+
+        assertThat(cache.getById(profile.getId())).contains(profile);
+        assertThat(cache.getByLogin("alice")).contains(profile);
+        assertThat(cache.getByEmail("alice@example.com")).contains(profile);
+    }
+
+    @Test
+    void loadStartedBeforeEvictionIsNotCached() {
+        Profile stale = profile("alice", "alice@example.com");
+
+        // Читатель получил строку до записи, писатель изменил профиль и убрал его из кэша,
+        // и только потом читатель пытается положить прочитанное
+        long stamp = cache.loadStamp();
+        cache.evict(stale.getId());
+        cache.putLoaded(stale, stamp);
+
+        assertThat(cache.getById(stale.getId())).isEmpty();
+        assertThat(cache.getByLogin("alice")).isEmpty();
+    }
+
+    @Test
+    void loadStartedBeforeWriteDoesNotReplaceWrittenProfile() {
+        Profile stale = profile("alice", "alice@example.com");
+        Profile written = Profile.builder().id(stale.getId()).login("alice2").password("secret").email("alice2@example.com").build();
+
+        long stamp = cache.loadStamp();
+        cache.put(written);
+        cache.putLoaded(stale, stamp);
+
+        assertThat(cache.getById(stale.getId())).contains(written);
+        assertThat(cache.getByLogin("alice")).isEmpty();
+    }
+
+    @Test
+    void returnedProfilesAreCopies() {
+        Profile profile = profile("alice", "alice@example.com");
+        cache.put(profile);
+
+        cache.getById(profile.getId()).orElseThrow().setLogin("mallory");
+        profile.setEmail("changed@example.com");
+
+        assertThat(cache.getById(profile.getId()).orElseThrow().getLogin()).isEqualTo("alice");
+        assertThat(cache.getById(profile.getId()).orElseThrow().getEmail()).isEqualTo("alice@example.com");
+    }
+
+    private static Profile profile(String login, String email) {
+        return Profile.builder().id(UUID.randomUUID()).login(login).password("secret").email(email).build();
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.crime.crimeproject.controller;
+
+import com.crime.crimeproject.jdbc.SlowQueryLog;
+import com.crime.crimeproject.service.CrimeJournalPartitionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// /admin не защищен аутентификацией, поэтому без явного crime.admin.enabled=true его нет совсем
+class AdminControllerTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withBean(SlowQueryLog.class, () -> new SlowQueryLog(10))
+            .withBean(CrimeJournalPartitionService.class, () -> mock(CrimeJournalPartitionService.class))
+            .withUserConfiguration(AdminController.class);
+
+    @Test
+    void disabledByDefault() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(AdminController.class));
+    }
+
+    @Test
+    void enabledByProperty() {
+        contextRunner.withPropertyValues("crime.admin.enabled=true")
+                .run(context -> assertThat(context).hasSingleBean(AdminController.class));
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.crime.crimeproject.controller;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.exception.GlobalExceptionHandler;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.repository.CrimeJournalStatsRepository;
+import com.crime.crimeproject.repository.ProfileRepository;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.CrimeJournalChangeFeedService;
+import com.crime.crimeproject.service.CrimeJournalExportService;
+import com.crime.crimeproject.service.CrimeJournalIngestService;
+import com.crime.crimeproject.service.CrimeJournalService;
+import com.crime.crimeproject.service.CrimeJournalStatsService;
+import com.crime.crimeproject.service.CrimeJournalStreamService;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Условный GET списков: неверные параметры — 400 даже при совпавшем If-None-Match
+class CrimeJournalControllerTest {
+
+    private static final String ETAG = "W/\"journal-5\"";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        CrimeJournalService crimeJournalService = new CrimeJournalService(mock(CrimeJournalRepository.class), mock(ProfileRepository.class),
+                mock(Validator.class), mock(CrimeJournalCache.class), mock(CollectionVersionService.class), mock(IdGenerator.class));
+        CollectionVersionService collectionVersionService = mock(CollectionVersionService.class);
+        when(collectionVersionService.journalETag()).thenReturn(ETAG);
+        mockMvc = MockMvcBuilders.standaloneSetup(new CrimeJournalController(crimeJournalService,
+                        mock(CrimeJournalExportService.class), collectionVersionService, new CrimeJournalStatsService(mock(CrimeJournalStatsRepository.class)),
+                        mock(CrimeJournalIngestService.class), mock(CrimeJournalChangeFeedService.class),
+                        mock(CrimeJournalStreamService.class)))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void unchangedJournalGivesNotModified() throws Exception {
+        mockMvc.perform(get("/journal").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void invalidParametersAreRejectedBeforeETagComparison() throws Exception {
+        mockMvc.perform(get("/journal").param("limit", "0").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/journal").param("cursor", "garbage").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/journal").param("sort", "sideways").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/journal/user/{profileId}", "9a3f1c2e-0b7d-4e59-8c16-2f4d5e6a7b80").param("limit", "501")
+                        .header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/journal/stats").param("year", "1800").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isBadRequest());
+    }
+
+}
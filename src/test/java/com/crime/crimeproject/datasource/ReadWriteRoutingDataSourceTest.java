@@ -0,0 +1,64 @@
+package com.crime.crimeproject.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final ReplicaLagMonitor replicaLagMonitor = mock(ReplicaLagMonitor.class);
+    private final ReadWriteRoutingDataSource dataSource =
+            new ReadWriteRoutingDataSource(mock(DataSource.class), mock(DataSource.class), replicaLagMonitor);
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadConsistency.clear();
+    }
+
+    @Test
+    void requestRoutedToReplicaStaysThereWhenReplicaFallsBehind() {
+        ReadConsistency.route(ReadConsistency.Route.replica(5, 7));
+        when(replicaLagMonitor.isAvailable()).thenReturn(false);
+
+        assertThat(dataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Role.REPLICA);
+    }
+
+    @Test
+    void requestRoutedToPrimaryIgnoresReplicaCatchingUp() {
+        ReadConsistency.route(ReadConsistency.PRIMARY);
+        when(replicaLagMonitor.isAvailable()).thenReturn(true);
+
+        assertThat(dataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Role.PRIMARY);
+    }
+
+    @Test
+    void writeTransactionGoesToPrimaryWhateverTheRoute() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadConsistency.route(ReadConsistency.Route.replica(5, 7));
+
+        assertThat(dataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Role.PRIMARY);
+    }
+
+    @Test
+    void withoutRequestRouteFollowsCurrentAvailability() {
+        when(replicaLagMonitor.isAvailable()).thenReturn(true);
+        assertThat(dataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Role.REPLICA);
+
+        when(replicaLagMonitor.isAvailable()).thenReturn(false);
+        assertThat(dataSource.determineCurrentLookupKey()).isEqualTo(ReadWriteRoutingDataSource.Role.PRIMARY);
+    }
+
+}
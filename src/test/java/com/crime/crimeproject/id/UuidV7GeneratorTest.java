@@ -0,0 +1,71 @@
+package com.crime.crimeproject.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class UuidV7GeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    private final UuidV7Generator generator = new UuidV7Generator();
+
+    @Test
+    void idsHaveVersion7AndRfcVariant() {
+        UUID id = generator.nextId();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        // Первые 48 бит — время в миллисекундах
+        assertThat(id.getMostSignificantBits() >>> 16).isCloseTo(System.currentTimeMillis(), within(1000L));
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndMonotonicWithinEachThread() throws Exception {
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    boolean monotonic = true;
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        UUID id = generator.nextId();
+                        all.add(id);
+                        // Время и счетчик — старшие 64 бита без учета знака; у каждого следующего ID они больше
+                        long current = id.getMostSignificantBits();
+                        if (i > 0 && Long.compareUnsigned(current, previous) <= 0) {
+                            monotonic = false;
+                        }
+                        previous = current;
+                    }
+                    return monotonic;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(all).hasSize(THREADS * IDS_PER_THREAD);
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.crime.crimeproject.jdbc;
+
+import com.crime.crimeproject.dto.SlowQueryDTO;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SlowQueryJdbcTemplateTest {
+
+    @Test
+    void onlyPlainReadsAreExplained() {
+        assertThat(SlowQueryJdbcTemplate.isSelect("  select id from crime_journal")).isTrue();
+        assertThat(SlowQueryJdbcTemplate.isSelect("WITH t AS (SELECT 1) SELECT * FROM t")).isTrue();
+
+        assertThat(SlowQueryJdbcTemplate.isSelect("SELECT id FROM crime_journal WHERE id = :id FOR UPDATE")).isFalse();
+        assertThat(SlowQueryJdbcTemplate.isSelect("SELECT id FROM crime_journal FOR KEY SHARE")).isFalse();
+        assertThat(SlowQueryJdbcTemplate.isSelect("WITH d AS (DELETE FROM crime_journal RETURNING id) SELECT count(*) FROM d")).isFalse();
+        // Раньше && связывалось только с WITH, и SELECT с изменяющей частью проходил проверку
+        assertThat(SlowQueryJdbcTemplate.isSelect("SELECT * FROM (UPDATE t SET x = 1 RETURNING *) u")).isFalse();
+        assertThat(SlowQueryJdbcTemplate.isSelect("UPDATE crime_journal SET is_closed = true")).isFalse();
+    }
+
+    @Test
+    void explainRunsInReadOnlyTransactionThatIsRolledBack() throws SQLException {
+        Connection con = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        PreparedStatement explain = mock(PreparedStatement.class);
+        when(con.getAutoCommit()).thenReturn(true);
+        when(con.createStatement()).thenReturn(statement);
+        when(explain.executeQuery()).thenThrow(new SQLException("cannot execute INSERT in a read-only transaction"));
+        PreparedStatementCreator creator = c -> explain;
+
+        assertThatThrownBy(() -> SlowQueryJdbcTemplate.explainReadOnly(con, creator)).isInstanceOf(SQLException.class);
+
+        InOrder order = inOrder(con, statement);
+        order.verify(con).setAutoCommit(false);
+        order.verify(statement).execute("SET TRANSACTION READ ONLY");
+        order.verify(con).rollback();
+        order.verify(con).setAutoCommit(true);
+        verify(con, never()).commit();
+    }
+
+    @Test
+    void literalsInPlanAreRedacted() {
+        String plan = "Index Scan using profile_login_key on profile\n"
+                + "  Index Cond: ((login)::text = 'o''brien'::text)\n"
+                + "  Filter: (date_crime >= '2023-01-01'::date AND limit_value = 10)";
+
+        assertThat(SlowQueryJdbcTemplate.redactPlan(plan)).isEqualTo("Index Scan using profile_login_key on profile\n"
+                + "  Index Cond: ((login)::text = '***'::text)\n"
+                + "  Filter: (date_crime >= '***'::date AND limit_value = 10)");
+    }
+
+    @Test
+    void parameterValuesAreRedactedByDefault() {
+        assertThat(loggedParameters(false)).containsExactly(Map.entry("login", "***"), Map.entry("email", "***"),
+                Map.entry("password", "***"));
+    }
+
+    @Test
+    void parameterValuesAreKeptWhenEnabledExceptPasswords() {
+        assertThat(loggedParameters(true)).containsExactly(Map.entry("login", "user1"), Map.entry("email", "user1@example.com"),
+                Map.entry("password", "***"));
+    }
+
+    // Пакет из одного элемента с нулевым порогом: запрос всегда попадает в журнал
+    private static Map<String, String> loggedParameters(boolean logParameters) {
+        SlowQueryLog slowQueryLog = new SlowQueryLog(10);
+        SlowQueryJdbcTemplate template = new SlowQueryJdbcTemplate(mock(JdbcTemplate.class), slowQueryLog, Duration.ZERO, 0,
+                logParameters);
+        SqlParameterSource params = new MapSqlParameterSource()
+                .addValue("login", "user1")
+                .addValue("email", "user1@example.com")
+                .addValue("password", "password123");
+
+        template.batchUpdate("INSERT INTO profile (login, email, password) VALUES (:login, :email, :password)",
+                new SqlParameterSource[]{params});
+
+        template.destroy();
+        return slowQueryLog.findAll().stream().map(SlowQueryDTO::getParameters).findFirst().orElseThrow();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.crime.crimeproject.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MethodMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void cacheHitsAreRecordedSeparatelyFromQueries() {
+        SampleRepository repository = proxy(new SampleRepository());
+
+        repository.find(true);
+        repository.find(true);
+        repository.find(false);
+
+        assertThat(registry.get("test.query").tag("method", "find").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("test.cache.hit").tag("method", "find").timer().count()).isEqualTo(2);
+        assertThat(registry.get("test.rows").tag("method", "find").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void leftoverMarkDoesNotTurnQueryIntoHit() {
+        SampleRepository repository = proxy(new SampleRepository());
+
+        RepositoryCacheHit.mark(); // например, вызов репозитория в обход прокси
+        repository.find(false);
+
+        assertThat(registry.get("test.query").tag("method", "find").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.find("test.cache.hit").timer()).isNotNull()
+                .extracting(timer -> timer.count()).isEqualTo(0L);
+    }
+
+    private SampleRepository proxy(SampleRepository target) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("registry", registry);
+        ObjectProvider<MeterRegistry> provider = beanFactory.getBeanProvider(MeterRegistry.class);
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new MethodMetricsInterceptor(provider, "test.query", "test.rows", "test.cache.hit", "repository"));
+        return (SampleRepository) proxyFactory.getProxy();
+    }
+
+    static class SampleRepository {
+
+        public Optional<List<String>> find(boolean cached) {
+            if (cached) {
+                RepositoryCacheHit.mark();
+            }
+            return Optional.of(List.of("row"));
+        }
+
+    }
+
+}
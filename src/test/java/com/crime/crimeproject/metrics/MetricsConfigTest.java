@@ -0,0 +1,71 @@
+package com.crime.crimeproject.metrics;
+
+import com.crime.crimeproject.service.CollectionVersionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.aop.PointcutAdvisor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsConfigTest {
+
+    private final MethodMatcher serviceMatcher = ((PointcutAdvisor) MetricsConfig.serviceMetricsAdvisor(
+            new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class))).getPointcut().getMethodMatcher();
+
+    @Test
+    void businessMethodsOfServicesAreMetered() throws NoSuchMethodException {
+        assertThat(matches(BackgroundService.class, "process")).isTrue();
+    }
+
+    @Test
+    void lifecycleAndMeterBinderMethodsAreNotMetered() throws NoSuchMethodException {
+        assertThat(matches(BackgroundService.class, "start")).isFalse();
+        assertThat(matches(BackgroundService.class, "stop")).isFalse();
+        assertThat(matches(BackgroundService.class, "isRunning")).isFalse();
+        assertThat(matches(BackgroundService.class, "getPhase")).isFalse();
+        assertThat(matches(BackgroundService.class, "bindTo", MeterRegistry.class)).isFalse();
+    }
+
+    @Test
+    void collectionVersionWaitsAreNotMetered() throws NoSuchMethodException {
+        assertThat(matches(CollectionVersionService.class, "awaitJournalChange", long.class, Duration.class)).isFalse();
+        assertThat(matches(CollectionVersionService.class, "journalChanged")).isFalse();
+    }
+
+    private boolean matches(Class<?> type, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return serviceMatcher.matches(type.getMethod(name, parameterTypes), type);
+    }
+
+    @Service
+    static class BackgroundService implements SmartLifecycle, MeterBinder {
+
+        public void process() {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public boolean isRunning() {
+            return false;
+        }
+
+        @Override
+        public void bindTo(MeterRegistry registry) {
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.crime.crimeproject.pagination;
+
+import com.crime.crimeproject.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalCursorTest {
+
+    @Test
+    void encodedCursorDecodesToSamePosition() {
+        JournalCursor cursor = new JournalCursor(LocalDate.of(2023, 12, 31), UUID.randomUUID());
+
+        assertThat(JournalCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        // Токен передается в query-параметре cursor без дополнительного кодирования
+        for (int i = 0; i < 100; i++) {
+            String token = new JournalCursor(LocalDate.of(2000, 1, 1).plusDays(i), UUID.randomUUID()).encode();
+            assertThat(token).matches("[A-Za-z0-9_-]+");
+        }
+    }
+
+    @Test
+    void cursorOfEntryUsesItsCalendarDate() {
+        UUID id = UUID.randomUUID();
+
+        JournalCursor cursor = JournalCursor.of(java.sql.Date.valueOf(LocalDate.of(2021, 3, 15)), id);
+
+        assertThat(cursor.getDateCrime()).isEqualTo(LocalDate.of(2021, 3, 15));
+        assertThat(cursor.getId()).isEqualTo(id);
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThatThrownBy(() -> JournalCursor.decode("not a cursor"))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> JournalCursor.decode("MjAyMy0wMS0wMQ")) // "2023-01-01" без ID
+                .isInstanceOf(ValidationException.class);
+    }
+
+}
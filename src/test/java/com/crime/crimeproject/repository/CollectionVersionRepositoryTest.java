@@ -0,0 +1,154 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.service.CollectionVersionService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Версии коллекций changeset 24 на настоящем PostgreSQL: одинаковы для любого экземпляра, читающего ту же БД
+class CollectionVersionRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CollectionVersionRepository repository;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        repository = new CollectionVersionRepository(template);
+    }
+
+    @Test
+    void eachWritingStatementAdvancesOnlyItsCollection() {
+        Map<String, Long> before = repository.findVersions();
+
+        UUID profileId = insertProfile();
+        insertJournal(profileId);
+        insertJournal(profileId);
+
+        Map<String, Long> after = repository.findVersions();
+        assertThat(after.get(CollectionVersionService.PROFILE)).isEqualTo(before.get(CollectionVersionService.PROFILE) + 1);
+        assertThat(after.get(CollectionVersionService.JOURNAL)).isEqualTo(before.get(CollectionVersionService.JOURNAL) + 2);
+    }
+
+    @Test
+    void statementChangingNoRowsKeepsVersion() {
+        Map<String, Long> before = repository.findVersions();
+
+        template.update("UPDATE crime_journal SET is_closed = true WHERE id = :id", Map.of("id", UUID.randomUUID()));
+
+        assertThat(repository.findVersions()).isEqualTo(before);
+    }
+
+    @Test
+    void uncommittedAndRolledBackWritesAreNotCounted() throws Exception {
+        UUID profileId = insertProfile();
+        Map<String, Long> before = repository.findVersions();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) VALUES (?, ?, ?, false, ?)")) {
+                insert.setObject(1, UUID.randomUUID());
+                insert.setString(2, "Откатываемая запись");
+                insert.setObject(3, LocalDate.of(2023, 1, 10));
+                insert.setObject(4, profileId);
+                insert.executeUpdate();
+            }
+            // Другой экземпляр не видит незафиксированную запись и в версии
+            assertThat(repository.findVersions()).isEqualTo(before);
+            connection.rollback();
+        }
+
+        assertThat(repository.findVersions()).isEqualTo(before);
+    }
+
+    @Test
+    void compactionKeepsVersions() {
+        insertJournal(insertProfile());
+        Map<String, Long> before = repository.findVersions();
+
+        repository.compact();
+
+        assertThat(repository.findVersions()).isEqualTo(before);
+        Integer pending = template.queryForObject("SELECT count(*) FROM crime_collection_writes", Map.of(), Integer.class);
+        assertThat(pending).isZero();
+
+        insertJournal(insertProfile());
+        assertThat(repository.findVersions().get(CollectionVersionService.JOURNAL))
+                .isEqualTo(before.get(CollectionVersionService.JOURNAL) + 1);
+    }
+
+    @Test
+    void servicesOfDifferentInstancesGiveSameETag() {
+        CollectionVersionService first = new CollectionVersionService(repository);
+        CollectionVersionService second = new CollectionVersionService(new CollectionVersionRepository(new NamedParameterJdbcTemplate(dataSource)));
+        first.listenerConnected();
+        second.listenerConnected();
+        assertThat(second.journalETag()).isEqualTo(first.journalETag());
+
+        insertJournal(insertProfile());
+        first.refresh();
+        second.refresh();
+
+        assertThat(second.journalETag()).isEqualTo(first.journalETag());
+        assertThat(second.profileETag()).isEqualTo(first.profileETag());
+    }
+
+    private void insertJournal(UUID profileId) {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("description", "Кража №" + id.toString().substring(0, 8));
+        params.put("dateCrime", LocalDate.of(2023, 1, 10));
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) "
+                + "VALUES (:id, :description, :dateCrime, false, :profileId)", params);
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.dto.ChangeOperation;
+import com.crime.crimeproject.entity.CrimeJournalChange;
+import com.crime.crimeproject.exception.GoneException;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.CrimeJournalChangeFeedService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+// Лента изменений на настоящем PostgreSQL: триггеры changeset 17/21 и видимость по xmin снимка
+class CrimeJournalChangeRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalChangeRepository repository;
+    private UUID profileId;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        repository = new CrimeJournalChangeRepository(template);
+        profileId = insertProfile();
+    }
+
+    @Test
+    void changesOfLaterCommitsWaitForOlderOpenTransaction() throws Exception {
+        ChangeFeedCursor start = latestPosition();
+        UUID early = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        // Другой профиль: иначе поздняя вставка ждала бы блокировку той же строки сводки crime_journal_stats
+        UUID otherProfileId = insertProfile();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) VALUES (?, ?, ?, false, ?)")) {
+                insert.setObject(1, early);
+                insert.setString(2, "Ранняя транзакция");
+                insert.setObject(3, LocalDate.of(2023, 1, 10));
+                insert.setObject(4, profileId);
+                insert.executeUpdate();
+            }
+            // Более поздняя транзакция фиксируется первой: у нее больше и txid, и seq
+            insertJournal(late, "Поздняя транзакция", otherProfileId);
+
+            // Пока ранняя транзакция открыта, выдача поздней передвинула бы курсор за еще не зафиксированное изменение
+            assertThat(repository.findAfter(start, 100)).isEmpty();
+
+            connection.commit();
+        }
+
+        assertThat(repository.findAfter(start, 100))
+                .extracting(change -> change.getCrimeJournal().getId())
+                .containsExactly(early, late);
+    }
+
+    @Test
+    void updateToAnotherProfileRecordsPreviousProfile() {
+        UUID otherProfileId = insertProfile();
+        UUID id = UUID.randomUUID();
+        insertJournal(id, "Кража велосипеда", profileId);
+        ChangeFeedCursor start = latestPosition();
+
+        template.update("UPDATE crime_journal SET profile_id = :profileId WHERE id = :id",
+                Map.of("profileId", otherProfileId, "id", id));
+        template.update("UPDATE crime_journal SET is_closed = true WHERE id = :id", Map.of("id", id));
+
+        assertThat(repository.findAfter(start, 100))
+                .extracting(CrimeJournalChange::getOperation, change -> change.getCrimeJournal().getProfileId(),
+                        CrimeJournalChange::getPreviousProfileId)
+                .containsExactly(
+                        tuple(ChangeOperation.UPDATE, otherProfileId, profileId),
+                        tuple(ChangeOperation.UPDATE, otherProfileId, null));
+    }
+
+    @Test
+    void purgeAdvancesMarkAndStaleCursorIsGone() {
+        ChangeFeedCursor beforeInsert = latestPosition();
+        insertJournal(UUID.randomUUID(), "Кража самоката", profileId);
+        ChangeFeedCursor lastPurged = latestPosition();
+
+        while (repository.deleteOlderThan(Instant.now().plusSeconds(60), 1000) > 0) {
+            // все изменения старше момента в будущем
+        }
+
+        assertThat(repository.findPurgedPosition()).isEqualTo(lastPurged);
+        CrimeJournalChangeFeedService feed = new CrimeJournalChangeFeedService(repository, mock(CollectionVersionService.class),
+                Duration.ofSeconds(30), Duration.ofSeconds(1), Duration.ofDays(7));
+        assertThatThrownBy(() -> feed.getChanges(beforeInsert.encode(), 10, 0)).isInstanceOf(GoneException.class);
+        // С последней удаленной позиции продолжать можно: после нее ничего не пропущено
+        assertThat(feed.getChanges(lastPurged.encode(), 10, 0).getItems()).isEmpty();
+        assertThat(feed.getChanges(null, 10, 0).getItems()).isEmpty();
+    }
+
+    private ChangeFeedCursor latestPosition() {
+        return repository.findLatestPosition().orElse(ChangeFeedCursor.START);
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+    private void insertJournal(UUID id, String description, UUID profileId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("description", description);
+        params.put("dateCrime", LocalDate.of(2023, 1, 10));
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) " +
+                        "VALUES (:id, :description, :dateCrime, false, :profileId)", params);
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.entity.CrimeJournal;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Глобальная уникальность id, поиск по id через crime_journal_ids и отключение секций на настоящем PostgreSQL
+// (changeset 20, 23)
+class CrimeJournalPartitionRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalPartitionRepository repository;
+    private UUID profileId;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        repository = new CrimeJournalPartitionRepository(template);
+        profileId = insertProfile();
+    }
+
+    @Test
+    void sameIdInAnotherPartitionIsRejected() {
+        UUID id = UUID.randomUUID();
+        insertJournal(id, LocalDate.of(2021, 3, 1));
+
+        assertThatThrownBy(() -> insertJournal(id, LocalDate.of(2022, 3, 1))).isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void idLookupsFollowRecordMovedToAnotherPartition() {
+        // Кэш нулевого размера: каждый вызов идет в БД
+        CrimeJournalRepository journals = new CrimeJournalRepository(template,
+                new CrimeJournalCache(0, Duration.ofMinutes(1), Duration.ofMinutes(1)), 1000);
+        UUID id = UUID.randomUUID();
+        insertJournal(id, LocalDate.of(2021, 3, 1));
+
+        CrimeJournal moved = new CrimeJournal(id, "Кража кошелька", Date.valueOf(LocalDate.of(2023, 7, 1)), true, profileId);
+        assertThat(journals.update(moved)).isTrue();
+
+        assertThat(template.queryForObject("SELECT date_crime FROM crime_journal_ids WHERE id = :id", Map.of("id", id), LocalDate.class))
+                .isEqualTo(LocalDate.of(2023, 7, 1));
+        assertThat(journals.findById(id)).hasValueSatisfying(found -> {
+            assertThat(found.getDateCrime()).isEqualTo(Date.valueOf(LocalDate.of(2023, 7, 1)));
+            assertThat(found.getIsClosed()).isTrue();
+        });
+        assertThat(journals.existsById(id)).isTrue();
+        assertThat(journals.deleteAllByIds(List.of(id, UUID.randomUUID()))).containsExactly(id);
+        assertThat(journals.existsById(id)).isFalse();
+        assertThat(journals.deleteById(id)).isFalse();
+    }
+
+    @Test
+    void detachingArchiveRecordsDeletesAndFreesIds() {
+        UUID id = UUID.randomUUID();
+        insertJournal(id, LocalDate.of(1995, 6, 15));
+        Long lastChange = template.queryForObject("SELECT coalesce(max(seq), 0) FROM crime_journal_changes", Map.of(), Long.class);
+
+        // Любой год до 2000 отключает архивную секцию целиком
+        assertThat(repository.detachPartition(1990, Duration.ofSeconds(1))).contains(1L);
+
+        assertThat(template.queryForList("SELECT operation FROM crime_journal_changes WHERE seq > :seq AND journal_id = :id",
+                Map.of("seq", lastChange, "id", id), String.class)).containsExactly("DELETE");
+        assertThat(template.queryForObject("SELECT count(*) FROM crime_journal_ids WHERE id = :id", Map.of("id", id), Long.class))
+                .isZero();
+        assertThat(template.queryForObject("SELECT count(*) FROM crime_journal_stats WHERE profile_id = :profileId",
+                Map.of("profileId", profileId), Long.class)).isZero();
+        assertThat(repository.detachPartition(1990, Duration.ofSeconds(1))).isEmpty();
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+    private void insertJournal(UUID id, LocalDate dateCrime) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("description", "Кража кошелька");
+        params.put("dateCrime", dateCrime);
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) " +
+                        "VALUES (:id, :description, :dateCrime, false, :profileId)", params);
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.dto.PageDTO;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.pagination.JournalCursor;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.SortDirection;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.CrimeJournalService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.validation.Validator;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+// Выборки и поиск журнала на настоящем PostgreSQL: результат и план запроса
+class CrimeJournalRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalRepository repository;
+    private UUID profileId;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        // По умолчанию встроенный сервер фиксирует асинхронно, а VACUUM не отмечает страницу видимой всем,
+        // пока запись о фиксации не сброшена в WAL: без этого план только по индексу не выбрать
+        postgres = EmbeddedPostgres.builder().setServerConfig("synchronous_commit", "on").start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        repository = repository(template);
+        profileId = insertProfile();
+    }
+
+    @Test
+    void periodAndStatusPageReturnsOnlyMatchingRecordsInKeysetOrder() {
+        UUID first = insertJournal("Кража в марте", LocalDate.of(2023, 3, 2), true);
+        UUID second = insertJournal("Грабеж в марте", LocalDate.of(2023, 3, 20), true);
+        UUID third = insertJournal("Угон в конце марта", LocalDate.of(2023, 3, 31), true);
+        insertJournal("Открытое дело в марте", LocalDate.of(2023, 3, 10), false);
+        insertJournal("Закрытое дело в апреле", LocalDate.of(2023, 4, 1), true);
+        insertJournal("Закрытое дело прошлого года", LocalDate.of(2022, 3, 15), true);
+        CrimeJournalFilter march = CrimeJournalFilter.builder()
+                .profileId(profileId)
+                .isClosed(true)
+                .from(LocalDate.of(2023, 3, 1))
+                .to(LocalDate.of(2023, 3, 31))
+                .build();
+
+        List<CrimeJournalDTO> firstPage = repository.findPage(march, null, 2, SortDirection.ASC);
+        JournalCursor cursor = JournalCursor.of(firstPage.get(1).getDateCrime(), firstPage.get(1).getId());
+        List<CrimeJournalDTO> secondPage = repository.findPage(march, cursor, 2, SortDirection.ASC);
+
+        assertThat(firstPage).extracting(CrimeJournalDTO::getId).containsExactly(first, second);
+        assertThat(secondPage).extracting(CrimeJournalDTO::getId).containsExactly(third);
+        assertThat(repository.findPage(march, null, 10, SortDirection.DESC)).extracting(CrimeJournalDTO::getId)
+                .containsExactly(third, second, first);
+    }
+
+    @Test
+    void periodAndStatusPageIsIndexOnlyScanOfOnePartitionWithoutSort() throws Exception {
+        for (int day = 1; day <= 28; day++) {
+            insertJournal("Дело №" + day, LocalDate.of(2023, 5, day), day % 2 == 0);
+            insertJournal("Дело прошлого года №" + day, LocalDate.of(2022, 5, day), day % 2 == 0);
+        }
+        template.getJdbcTemplate().execute("VACUUM ANALYZE crime_journal");
+
+        CrimeJournalFilter filter = CrimeJournalFilter.builder()
+                .isClosed(true)
+                .from(LocalDate.of(2023, 5, 1))
+                .to(LocalDate.of(2023, 5, 31))
+                .build();
+
+        // На таблице из десятков строк выбор между планами решает стоимость, а не индекс, поэтому разрешено
+        // только чтение одного индекса без обращения к таблице: такой план есть, лишь если индекс покрывает запрос
+        String plan = explain(planned -> assertThat(planned.findPage(filter, null, 10, SortDirection.DESC)).hasSize(10),
+                "enable_seqscan", "enable_bitmapscan", "enable_indexscan");
+
+        assertThat(plan)
+                .contains("Index Only Scan Backward using crime_journal_y2023_date_crime_is_closed_id")
+                .doesNotContain("crime_journal_y2022")
+                .doesNotContain("Sort")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void profilePagesWalkAllEntriesOfProfileInBothDirections() {
+        UUID otherProfileId = insertProfile();
+        // Одинаковые даты: порядок внутри даты задает id, поэтому id заданы явно
+        UUID sameDayFirst = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID sameDaySecond = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        UUID oldest = insertJournal(UUID.randomUUID(), profileId, "Кража в декабре", LocalDate.of(2022, 12, 30), false);
+        insertJournal(sameDaySecond, profileId, "Второй угон в январе", LocalDate.of(2023, 1, 15), false);
+        insertJournal(sameDayFirst, profileId, "Первый угон в январе", LocalDate.of(2023, 1, 15), true);
+        UUID february = insertJournal(UUID.randomUUID(), profileId, "Грабеж в феврале", LocalDate.of(2023, 2, 1), false);
+        UUID newest = insertJournal(UUID.randomUUID(), profileId, "Поджог в марте", LocalDate.of(2023, 3, 1), true);
+        insertJournal(UUID.randomUUID(), otherProfileId, "Чужая кража в январе", LocalDate.of(2023, 1, 15), false);
+        insertJournal(UUID.randomUUID(), otherProfileId, "Чужой грабеж в феврале", LocalDate.of(2023, 2, 1), false);
+        CrimeJournalService service = new CrimeJournalService(repository, mock(ProfileRepository.class), mock(Validator.class),
+                mock(CrimeJournalCache.class), mock(CollectionVersionService.class), mock(IdGenerator.class));
+
+        assertThat(walkProfilePages(service, null, SortDirection.ASC))
+                .containsExactly(oldest, sameDayFirst, sameDaySecond, february, newest);
+        assertThat(walkProfilePages(service, null, SortDirection.DESC))
+                .containsExactly(newest, february, sameDaySecond, sameDayFirst, oldest);
+        assertThat(walkProfilePages(service, false, SortDirection.DESC))
+                .containsExactly(february, sameDaySecond, oldest);
+    }
+
+    @Test
+    void profilePageIsServedByProfileIndexWithoutSortInBothDirections() throws Exception {
+        UUID otherProfileId = insertProfile();
+        for (int day = 1; day <= 28; day++) {
+            insertJournal(UUID.randomUUID(), profileId, "Дело профиля №" + day, LocalDate.of(2023, 7, day), false);
+            for (int n = 1; n <= 10; n++) {
+                insertJournal(UUID.randomUUID(), otherProfileId, "Дело другого профиля №" + day + "-" + n, LocalDate.of(2023, 7, day), false);
+            }
+        }
+        template.getJdbcTemplate().execute("VACUUM ANALYZE crime_journal");
+        CrimeJournalFilter filter = CrimeJournalFilter.builder().profileId(profileId).build();
+
+        for (SortDirection direction : SortDirection.values()) {
+            // Без полного просмотра и чтения только по индексу остается обход индекса: без Sort и в порядке ключа
+            // он возможен лишь по индексу, начинающемуся с profile_id и продолжающемуся date_crime, id
+            String plan = explain(planned -> assertThat(planned.findPage(filter, null, 10, direction)).hasSize(10),
+                    "enable_seqscan", "enable_bitmapscan", "enable_indexonlyscan");
+
+            assertThat(plan)
+                    .contains("using crime_journal_y2023_profile_id_date_crime_id_idx")
+                    .contains("Index Cond: (profile_id = ")
+                    // Секции сливаются Merge Append по ключу индекса, отдельного узла Sort нет
+                    .doesNotContain("->  Sort")
+                    .doesNotContain("Seq Scan");
+        }
+    }
+
+    @Test
+    void searchRanksWholeWordMatchesFirstThenNewestFirst() {
+        UUID older = insertJournal("Theft of a bicycle", LocalDate.of(2023, 2, 1), false);
+        UUID newer = insertJournal("Bicycle theft at the station", LocalDate.of(2023, 6, 1), false);
+        UUID partial = insertJournal("Thefts reported downtown", LocalDate.of(2023, 9, 1), false);
+        insertJournal("Robbery at the station", LocalDate.of(2023, 7, 1), false);
+
+        assertThat(repository.findByDescription("theft", 10, 0)).extracting(CrimeJournalDTO::getId)
+                .containsExactly(newer, older, partial);
+        assertThat(repository.findByDescription("theft", 1, 1)).extracting(CrimeJournalDTO::getId)
+                .containsExactly(older);
+    }
+
+    @Test
+    void searchMatchesLikeWildcardsLiterally() {
+        UUID percent = insertJournal("Fraud with 50% discount", LocalDate.of(2023, 3, 1), false);
+        insertJournal("Fraud with 500 coupons", LocalDate.of(2023, 3, 2), false);
+        UUID underscore = insertJournal("Login user_1 hijacked", LocalDate.of(2023, 3, 3), false);
+        insertJournal("Login userX1 hijacked", LocalDate.of(2023, 3, 4), false);
+
+        assertThat(repository.findByDescription("50%", 10, 0)).extracting(CrimeJournalDTO::getId).containsExactly(percent);
+        assertThat(repository.findByDescription("user_1", 10, 0)).extracting(CrimeJournalDTO::getId).containsExactly(underscore);
+    }
+
+    @Test
+    void searchIsServedByTrigramIndex() throws Exception {
+        insertJournal("Arson of a warehouse", LocalDate.of(2023, 8, 1), false);
+        template.getJdbcTemplate().execute("VACUUM ANALYZE crime_journal");
+
+        // Остается только чтение через битовую карту: план без полного просмотра есть, лишь если ILIKE с % с обеих
+        // сторон обслуживает триграммный индекс
+        String plan = explain(planned -> assertThat(planned.findByDescription("arson", 10, 0)).hasSize(1),
+                "enable_seqscan", "enable_indexscan", "enable_indexonlyscan");
+
+        assertThat(plan)
+                .contains("Bitmap Index Scan on crime_journal_y2023_description_idx")
+                .contains("Index Cond: ((description)::text ~~* '%arson%'::text)")
+                .doesNotContain("Seq Scan");
+    }
+
+    // Выполняет выборку репозитория на одном соединении с отключенными способами доступа и возвращает EXPLAIN того же
+    // оператора с теми же параметрами: настройки планировщика действуют и на запрос, и на его план
+    private String explain(Consumer<CrimeJournalRepository> query, String... disabled) throws Exception {
+        try (SingleConnectionDataSource single = new SingleConnectionDataSource(postgres.getJdbcUrl("postgres", "postgres"), true)) {
+            NamedParameterJdbcTemplate planned = spy(new NamedParameterJdbcTemplate(single));
+            for (String setting : disabled) {
+                planned.getJdbcTemplate().execute("SET " + setting + " = off");
+            }
+            query.accept(repository(planned));
+
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Map<String, Object>> params = ArgumentCaptor.forClass(Map.class);
+            verify(planned).query(sql.capture(), params.capture(), any(RowMapper.class));
+            return String.join("\n", planned.queryForList("EXPLAIN " + sql.getValue(), params.getValue(), String.class));
+        }
+    }
+
+    private static CrimeJournalRepository repository(NamedParameterJdbcTemplate template) {
+        // Кэш нулевого размера: каждый вызов идет в БД
+        return new CrimeJournalRepository(template, new CrimeJournalCache(0, Duration.ofMinutes(1), Duration.ofMinutes(1)), 1000);
+    }
+
+    // Проходит все страницы записей профиля по курсорам продолжения и возвращает id в порядке выдачи
+    private List<UUID> walkProfilePages(CrimeJournalService service, Boolean isClosed, SortDirection direction) {
+        List<UUID> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            PageDTO<CrimeJournalDTO> page = service.getByProfileId(profileId, isClosed, cursor, 2, direction);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+            page.getItems().forEach(dto -> ids.add(dto.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private UUID insertJournal(String description, LocalDate dateCrime, boolean closed) {
+        return insertJournal(UUID.randomUUID(), profileId, description, dateCrime, closed);
+    }
+
+    private UUID insertJournal(UUID id, UUID profileId, String description, LocalDate dateCrime, boolean closed) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("description", description);
+        params.put("dateCrime", dateCrime);
+        params.put("closed", closed);
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) "
+                + "VALUES (:id, :description, :dateCrime, :closed, :profileId)", params);
+        return id;
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.dto.CrimeJournalStatsDTO;
+import com.crime.crimeproject.service.CrimeJournalStatsService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// Сводка crime_journal_stats на настоящем PostgreSQL: триггеры changeset 14/19 на вставку, изменение и удаление
+class CrimeJournalStatsRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalStatsRepository repository;
+    private UUID profileId;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        repository = new CrimeJournalStatsRepository(template);
+        profileId = insertProfile();
+    }
+
+    @Test
+    void batchInsertAddsOneRowPerGroup() {
+        insertJournals(LocalDate.of(2023, 1, 10), false, 3);
+        insertJournals(LocalDate.of(2023, 1, 20), true, 2);
+        insertJournals(LocalDate.of(2023, 2, 1), false, 1);
+
+        assertThat(statsRows()).containsExactlyInAnyOrder(
+                tuple(LocalDate.of(2023, 1, 1), false, 3L),
+                tuple(LocalDate.of(2023, 1, 1), true, 2L),
+                tuple(LocalDate.of(2023, 2, 1), false, 1L));
+    }
+
+    @Test
+    void closingRecordMovesItBetweenGroupsAndDropsEmptyGroup() {
+        List<UUID> ids = insertJournals(LocalDate.of(2023, 3, 5), false, 1);
+
+        template.update("UPDATE crime_journal SET is_closed = true WHERE id = :id", Map.of("id", ids.get(0)));
+
+        assertThat(statsRows()).containsExactly(tuple(LocalDate.of(2023, 3, 1), true, 1L));
+        assertThat(zeroRows()).isZero();
+    }
+
+    @Test
+    void updateWithinSameGroupKeepsCount() {
+        List<UUID> ids = insertJournals(LocalDate.of(2023, 4, 5), false, 2);
+
+        template.update("UPDATE crime_journal SET description = 'Другое описание' WHERE id = :id", Map.of("id", ids.get(0)));
+
+        assertThat(statsRows()).containsExactly(tuple(LocalDate.of(2023, 4, 1), false, 2L));
+    }
+
+    @Test
+    void deletingLastRecordsOfGroupRemovesItsRow() {
+        insertJournals(LocalDate.of(2023, 5, 5), false, 2);
+        insertJournals(LocalDate.of(2023, 6, 5), false, 1);
+
+        template.update("DELETE FROM crime_journal WHERE profile_id = :profileId AND date_crime < '2023-06-01'",
+                Map.of("profileId", profileId));
+
+        assertThat(statsRows()).containsExactly(tuple(LocalDate.of(2023, 6, 1), false, 1L));
+        assertThat(zeroRows()).isZero();
+    }
+
+    @Test
+    void summaryMatchesJournalAfterMixedChanges() {
+        List<UUID> ids = insertJournals(LocalDate.of(2022, 7, 1), false, 4);
+        template.update("UPDATE crime_journal SET date_crime = '2022-08-15', is_closed = true WHERE id IN (:a, :b)",
+                Map.of("a", ids.get(0), "b", ids.get(1)));
+        template.update("DELETE FROM crime_journal WHERE id = :id", Map.of("id", ids.get(2)));
+
+        CrimeJournalStatsDTO stats = new CrimeJournalStatsService(repository).getStats(profileId, 2022);
+
+        assertThat(stats.getTotal()).isEqualTo(3);
+        assertThat(stats.getClosed()).isEqualTo(2);
+        assertThat(stats.getOpen()).isEqualTo(1);
+        assertThat(stats.getByMonth()).extracting("month", "closed", "open").containsExactly(tuple(7, 0L, 1L), tuple(8, 2L, 0L));
+        Integer mismatches = template.queryForObject(
+                "SELECT count(*) FROM (SELECT profile_id, date_trunc('month', date_crime)::date AS month, is_closed, count(*) AS crime_count " +
+                "FROM crime_journal GROUP BY 1, 2, 3) j " +
+                "FULL JOIN crime_journal_stats s USING (profile_id, month, is_closed) " +
+                "WHERE j.crime_count IS DISTINCT FROM s.crime_count", Map.of(), Integer.class);
+        assertThat(mismatches).isZero();
+    }
+
+    private List<Tuple> statsRows() {
+        return repository.find(profileId, null).stream()
+                .map(row -> tuple(row.getMonth(), row.getIsClosed(), row.getCrimeCount()))
+                .toList();
+    }
+
+    private int zeroRows() {
+        Integer count = template.queryForObject("SELECT count(*) FROM crime_journal_stats WHERE crime_count = 0", Map.of(), Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // Вставка одним оператором: триггер видит все строки сразу
+    private List<UUID> insertJournals(LocalDate dateCrime, boolean closed, int count) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("dateCrime", dateCrime);
+        params.put("closed", closed);
+        params.put("profileId", profileId);
+        params.put("count", count);
+        return template.queryForList("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) " +
+                "SELECT gen_random_uuid(), 'Кража №' || n || ' ' || :dateCrime || ' ' || :closed, :dateCrime, :closed, :profileId " +
+                "FROM generate_series(1, :count) n RETURNING id", params, UUID.class);
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+}
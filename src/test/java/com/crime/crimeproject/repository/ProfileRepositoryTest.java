@@ -0,0 +1,159 @@
+package com.crime.crimeproject.repository;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.cache.ProfileCache;
+import com.crime.crimeproject.controller.ProfileController;
+import com.crime.crimeproject.exception.GlobalExceptionHandler;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.ProfileService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Удаление профиля на настоящем PostgreSQL: каскад одним оператором с CTE и отказ без каскада
+class ProfileRepositoryTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalCache crimeJournalCache;
+    private ProfileRepository repository;
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        ProfileCache profileCache = new ProfileCache(1000, Duration.ofMinutes(10));
+        crimeJournalCache = new CrimeJournalCache(1000, Duration.ofMinutes(10), Duration.ofMinutes(10));
+        repository = new ProfileRepository(template, profileCache, crimeJournalCache);
+        ProfileService profileService = new ProfileService(repository, profileCache, mock(CollectionVersionService.class),
+                mock(IdGenerator.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(new ProfileController(profileService, mock(CollectionVersionService.class)))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void cascadeDeletesProfileWithAllJournalEntriesAndEvictsThem() {
+        UUID profileId = insertProfile();
+        UUID otherProfileId = insertProfile();
+        UUID cached = insertJournal(profileId, LocalDate.of(2023, 1, 10));
+        insertJournal(profileId, LocalDate.of(2021, 6, 1));
+        UUID untouched = insertJournal(otherProfileId, LocalDate.of(2023, 1, 10));
+        crimeJournalCache.putMissing(cached, crimeJournalCache.loadStamp(cached));
+
+        OptionalInt deleted = repository.deleteWithJournalById(profileId);
+
+        assertThat(deleted).hasValue(2);
+        assertThat(count("SELECT count(*) FROM profile WHERE id = :id", profileId)).isZero();
+        assertThat(count("SELECT count(*) FROM crime_journal WHERE profile_id = :id", profileId)).isZero();
+        assertThat(count("SELECT count(*) FROM crime_journal WHERE id = :id", untouched)).isOne();
+        assertThat(crimeJournalCache.getIfPresent(cached)).isNull();
+    }
+
+    @Test
+    void cascadeWithoutJournalEntriesDeletesOnlyProfile() {
+        UUID profileId = insertProfile();
+
+        assertThat(repository.deleteWithJournalById(profileId)).hasValue(0);
+        assertThat(count("SELECT count(*) FROM profile WHERE id = :id", profileId)).isZero();
+    }
+
+    @Test
+    void cascadeForMissingProfileDeletesNothing() {
+        assertThat(repository.deleteWithJournalById(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void deleteWithoutCascadeKeepsProfileWithJournalEntriesAndAnswersBadRequest() throws Exception {
+        UUID profileId = insertProfile();
+        insertJournal(profileId, LocalDate.of(2023, 1, 10));
+
+        mockMvc.perform(delete("/profile/{id}", profileId))
+                .andExpect(status().isBadRequest());
+
+        assertThat(count("SELECT count(*) FROM profile WHERE id = :id", profileId)).isOne();
+        assertThat(count("SELECT count(*) FROM crime_journal WHERE profile_id = :id", profileId)).isOne();
+    }
+
+    @Test
+    void deleteWithCascadeReportsDeletedJournalEntries() throws Exception {
+        UUID profileId = insertProfile();
+        insertJournal(profileId, LocalDate.of(2023, 1, 10));
+        insertJournal(profileId, LocalDate.of(2023, 2, 10));
+
+        mockMvc.perform(delete("/profile/{id}", profileId).param("cascade", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedProfiles").value(1))
+                .andExpect(jsonPath("$.deletedJournalEntries").value(2));
+    }
+
+    private int count(String sql, UUID id) {
+        Integer count = template.queryForObject(sql, Map.of("id", id), Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private UUID insertJournal(UUID profileId, LocalDate dateCrime) {
+        UUID id = UUID.randomUUID();
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("description", "Кража №" + id.toString().substring(0, 8));
+        params.put("dateCrime", dateCrime);
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) "
+                + "VALUES (:id, :description, :dateCrime, false, :profileId)", params);
+        return id;
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.cache.ProfileCache;
+import com.crime.crimeproject.entity.Profile;
+import com.crime.crimeproject.repository.CollectionVersionRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Запись мимо этого экземпляра (как через другой узел) удаляет записи из его кэшей по уведомлению changeset 22
+class CollectionChangeListenerTest {
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    private NamedParameterJdbcTemplate template;
+    private CrimeJournalCache crimeJournalCache;
+    private ProfileCache profileCache;
+    private CollectionVersionService collectionVersionService;
+    private CollectionChangeListener listener;
+    private UUID profileId;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.yaml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        template = new NamedParameterJdbcTemplate(dataSource);
+        crimeJournalCache = new CrimeJournalCache(1000, Duration.ofMinutes(10), Duration.ofMinutes(10));
+        profileCache = new ProfileCache(1000, Duration.ofMinutes(10));
+        collectionVersionService = new CollectionVersionService(new CollectionVersionRepository(template));
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        properties.setUsername("postgres");
+        listener = new CollectionChangeListener(properties, collectionVersionService, crimeJournalCache, profileCache,
+                Duration.ofSeconds(1), Duration.ofMillis(100));
+        listener.start();
+        // ETag выдаются только после LISTEN: дальше любое изменение придет уведомлением
+        await().atMost(Duration.ofSeconds(10)).until(() -> collectionVersionService.journalETag() != null);
+        // Уведомление о вставке профиля приходит асинхронно: дожидаемся его, чтобы оно не удалило профиль, положенный тестом
+        long profileVersion = collectionVersionService.profileVersion();
+        profileId = insertProfile();
+        await().atMost(Duration.ofSeconds(5)).until(() -> collectionVersionService.profileVersion() > profileVersion);
+    }
+
+    @AfterEach
+    void tearDown() {
+        listener.stop();
+    }
+
+    @Test
+    void journalInsertedElsewhereReplacesNegativeEntry() {
+        UUID id = UUID.randomUUID();
+        crimeJournalCache.putMissing(id, crimeJournalCache.loadStamp(id));
+        assertThat(crimeJournalCache.getIfPresent(id)).isEmpty();
+
+        insertJournals("SELECT CAST(:id AS uuid), 'Кража велосипеда'", Map.of("id", id));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> crimeJournalCache.getIfPresent(id) == null);
+    }
+
+    @Test
+    void profileChangedElsewhereIsEvicted() {
+        Profile profile = Profile.builder()
+                .id(profileId)
+                .login("user" + profileId.toString().substring(0, 8))
+                .password("password123")
+                .email("old@example.com")
+                .build();
+        profileCache.putLoaded(profile, profileCache.loadStamp());
+        assertThat(profileCache.getById(profileId)).isPresent();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", profileId);
+        template.update("UPDATE profile SET email = 'new@example.com' WHERE id = :id", params);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> profileCache.getById(profileId).isEmpty());
+    }
+
+    @Test
+    void statementChangingMoreThanHundredRowsClearsWholeCache() {
+        UUID unrelated = UUID.randomUUID();
+        crimeJournalCache.putMissing(unrelated, crimeJournalCache.loadStamp(unrelated));
+
+        insertJournals("SELECT gen_random_uuid(), 'Кража №' || n FROM generate_series(1, 101) n", Map.of());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> crimeJournalCache.getIfPresent(unrelated) == null);
+    }
+
+    private void insertJournals(String rows, Map<String, Object> rowParams) {
+        Map<String, Object> params = new HashMap<>(rowParams);
+        params.put("dateCrime", LocalDate.of(2023, 1, 10));
+        params.put("profileId", profileId);
+        template.update("INSERT INTO crime_journal (id, description, date_crime, is_closed, profile_id) "
+                + "SELECT r.id, r.description, :dateCrime, false, :profileId FROM (" + rows + ") AS r (id, description)", params);
+    }
+
+    private UUID insertProfile() {
+        UUID id = UUID.randomUUID();
+        String login = "user" + id.toString().substring(0, 8);
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        params.put("login", login);
+        params.put("password", "password123");
+        params.put("email", login + "@example.com");
+        template.update("INSERT INTO profile (id, login, password, email) VALUES (:id, :login, :password, :email)", params);
+        return id;
+    }
+
+}
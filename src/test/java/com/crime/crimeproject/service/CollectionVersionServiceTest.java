@@ -0,0 +1,108 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.repository.CollectionVersionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class CollectionVersionServiceTest {
+
+    private final CollectionVersionRepository repository = mock(CollectionVersionRepository.class);
+    private final CollectionVersionService service = new CollectionVersionService(repository);
+
+    @BeforeEach
+    void setUp() {
+        versions(5, 7);
+    }
+
+    @Test
+    void noETagUntilListenerIsConnected() {
+        assertThat(service.journalETag()).isNull();
+        assertThat(service.profileETag()).isNull();
+
+        service.listenerConnected();
+
+        assertThat(service.journalETag()).isEqualTo("W/\"journal-5\"");
+        assertThat(service.profileETag()).isEqualTo("W/\"profile-7\"");
+    }
+
+    @Test
+    void instancesReadingSameVersionsGiveSameETag() {
+        CollectionVersionService other = new CollectionVersionService(repository);
+        service.listenerConnected();
+        other.listenerConnected();
+
+        assertThat(other.journalETag()).isEqualTo(service.journalETag());
+        assertThat(other.profileETag()).isEqualTo(service.profileETag());
+    }
+
+    @Test
+    void refreshChangesOnlyCollectionWhoseVersionGrew() {
+        service.listenerConnected();
+        String journal = service.journalETag();
+        String profile = service.profileETag();
+
+        versions(6, 7);
+        service.refresh();
+
+        assertThat(service.journalETag()).isNotEqualTo(journal);
+        assertThat(service.profileETag()).isEqualTo(profile);
+    }
+
+    @Test
+    void olderReadDoesNotMoveVersionBack() {
+        service.listenerConnected();
+        versions(4, 7);
+
+        service.refresh();
+
+        assertThat(service.journalVersion()).isEqualTo(5);
+    }
+
+    @Test
+    void failedReadDisablesETagsUntilNextSuccessfulRead() {
+        service.listenerConnected();
+        doThrow(new DataAccessResourceFailureException("нет соединения")).when(repository).findVersions();
+
+        service.refresh();
+        assertThat(service.journalETag()).isNull();
+
+        versions(6, 7);
+        service.refreshIfUnknown();
+        assertThat(service.journalETag()).isEqualTo("W/\"journal-6\"");
+    }
+
+    @Test
+    void noETagWhileListenerIsDisconnected() {
+        service.listenerConnected();
+
+        service.listenerDisconnected();
+
+        assertThat(service.journalETag()).isNull();
+        assertThat(service.profileETag()).isNull();
+    }
+
+    @Test
+    void grownVersionWakesWaiter() throws InterruptedException {
+        service.listenerConnected();
+        long seen = service.journalVersion();
+        versions(6, 7);
+        Thread.ofVirtual().start(service::refresh);
+
+        assertThat(service.awaitJournalChange(seen, Duration.ofSeconds(5))).isTrue();
+    }
+
+    private void versions(long journal, long profile) {
+        doReturn(Map.of(CollectionVersionService.JOURNAL, journal, CollectionVersionService.PROFILE, profile))
+                .when(repository).findVersions();
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.request.ExportFormat;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CrimeJournalExportServiceTest {
+
+    private final UUID profileId = UUID.randomUUID();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<ResultSet> rows = new ArrayList<>();
+
+    private CrimeJournalExportService service;
+
+    @BeforeEach
+    void setUp() {
+        CrimeJournalRepository repository = mock(CrimeJournalRepository.class);
+        // Репозиторий передает обработчику строки курсора по одной, как при чтении из БД
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(0);
+            for (ResultSet row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(repository).streamAll(any(RowCallbackHandler.class));
+        service = new CrimeJournalExportService(repository, objectMapper);
+    }
+
+    @Test
+    void csvQuotesOnlyValuesWithSeparatorsQuotesOrLineBreaks() throws Exception {
+        UUID plain = addRow("Кража велосипеда", LocalDate.of(2023, 1, 10), false);
+        UUID comma = addRow("Кража, ночью", LocalDate.of(2023, 1, 11), true);
+        UUID quote = addRow("Угон \"Лады\"", LocalDate.of(2023, 1, 12), false);
+        UUID lineBreak = addRow("Первая строка\r\nвторая строка", LocalDate.of(2023, 1, 13), true);
+
+        String csv = export(ExportFormat.CSV);
+
+        assertThat(csv).isEqualTo("id,description,date_crime,is_closed,profile_id\n"
+                + plain + ",Кража велосипеда,2023-01-10,false," + profileId + "\n"
+                + comma + ",\"Кража, ночью\",2023-01-11,true," + profileId + "\n"
+                + quote + ",\"Угон \"\"Лады\"\"\",2023-01-12,false," + profileId + "\n"
+                + lineBreak + ",\"Первая строка\r\nвторая строка\",2023-01-13,true," + profileId + "\n");
+    }
+
+    @Test
+    void csvOfEmptyJournalIsHeaderOnly() throws Exception {
+        assertThat(export(ExportFormat.CSV)).isEqualTo("id,description,date_crime,is_closed,profile_id\n");
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        UUID first = addRow("Угон \"Лады\"", LocalDate.of(2023, 2, 1), true);
+        UUID second = addRow("Первая строка\nвторая строка", LocalDate.of(2023, 2, 2), false);
+
+        String ndjson = export(ExportFormat.NDJSON);
+
+        assertThat(ndjson).endsWith("\n");
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode firstRow = objectMapper.readTree(lines[0]);
+        assertThat(firstRow.get("id").asText()).isEqualTo(first.toString());
+        assertThat(firstRow.get("description").asText()).isEqualTo("Угон \"Лады\"");
+        assertThat(firstRow.get("dateCrime").asText()).isEqualTo("2023-02-01");
+        assertThat(firstRow.get("isClosed").asBoolean()).isTrue();
+        assertThat(firstRow.get("profile_id").asText()).isEqualTo(profileId.toString());
+        JsonNode secondRow = objectMapper.readTree(lines[1]);
+        assertThat(secondRow.get("id").asText()).isEqualTo(second.toString());
+        assertThat(secondRow.get("description").asText()).isEqualTo("Первая строка\nвторая строка");
+        assertThat(secondRow.get("isClosed").asBoolean()).isFalse();
+    }
+
+    @Test
+    void ndjsonOfEmptyJournalIsEmpty() throws Exception {
+        assertThat(export(ExportFormat.NDJSON)).isEmpty();
+    }
+
+    @Test
+    void formatIsParsedIgnoringCaseAndUnknownIsRejected() {
+        assertThat(ExportFormat.from("CSV")).isEqualTo(ExportFormat.CSV);
+        assertThat(ExportFormat.from("ndjson")).isEqualTo(ExportFormat.NDJSON);
+        assertThatThrownBy(() -> ExportFormat.from("xml")).isInstanceOf(ValidationException.class);
+    }
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        service.export(format, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    // Строка курсора с колонками в порядке SELECT репозитория
+    private UUID addRow(String description, LocalDate dateCrime, boolean closed) throws Exception {
+        UUID id = UUID.randomUUID();
+        ResultSet row = mock(ResultSet.class);
+        when(row.getObject(1, UUID.class)).thenReturn(id);
+        when(row.getString(2)).thenReturn(description);
+        when(row.getDate(3)).thenReturn(Date.valueOf(dateCrime));
+        when(row.getBoolean(4)).thenReturn(closed);
+        when(row.getObject(5, UUID.class)).thenReturn(profileId);
+        rows.add(row);
+        return id;
+    }
+
+}
@@ -0,0 +1,235 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.dto.IngestStatus;
+import com.crime.crimeproject.dto.IngestStatusDTO;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.repository.ProfileRepository;
+import com.crime.crimeproject.request.CreateCrimeJournalRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrimeJournalIngestServiceTest {
+
+    private final UUID profileId = UUID.randomUUID();
+
+    private CrimeJournalRepository crimeJournalRepository;
+    private ProfileRepository profileRepository;
+    private CollectionVersionService collectionVersionService;
+    private PlatformTransactionManager transactionManager;
+    private CrimeJournalIngestService service;
+
+    @BeforeEach
+    void setUp() {
+        crimeJournalRepository = mock(CrimeJournalRepository.class);
+        profileRepository = mock(ProfileRepository.class);
+        when(profileRepository.findExistingIds(anyCollection())).thenReturn(Set.of(profileId));
+        collectionVersionService = mock(CollectionVersionService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null && service.isRunning()) {
+            service.stop();
+        }
+    }
+
+    @Test
+    void statusBecomesPersistedOnlyAfterCommit() {
+        service = service(100, Duration.ofSeconds(5));
+        List<IngestStatus> atCommit = new ArrayList<>();
+        List<CrimeJournal> saved = new ArrayList<>();
+        when(crimeJournalRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return applied(invocation.getArgument(0));
+        });
+        // Ответ на commit ставится до запуска: писатель может зафиксировать пакет сразу после enqueue
+        doAnswer(invocation -> atCommit.add(service.getStatus(saved.get(0).getId()).getStatus())).when(transactionManager).commit(any());
+        service.start();
+        UUID id = service.enqueue(request("Кража велосипеда")).getId();
+
+        service.stop();
+
+        assertThat(atCommit).containsExactly(IngestStatus.QUEUED);
+        assertThat(service.getStatus(id).getStatus()).isEqualTo(IngestStatus.PERSISTED);
+        verify(collectionVersionService).journalChanged();
+    }
+
+    @Test
+    void failedCommitDoesNotReportPersisted() {
+        service = service(100, Duration.ofSeconds(5));
+        when(crimeJournalRepository.saveAll(anyList())).thenAnswer(invocation -> applied(invocation.getArgument(0)));
+        doThrow(new TransactionSystemException("connection reset while committing")).when(transactionManager).commit(any());
+        service.start();
+        UUID first = service.enqueue(request("Кража велосипеда")).getId();
+        UUID second = service.enqueue(request("Кража самоката")).getId();
+
+        service.stop();
+
+        for (UUID id : List.of(first, second)) {
+            IngestStatusDTO status = service.getStatus(id);
+            assertThat(status.getStatus()).isEqualTo(IngestStatus.FAILED);
+            // Текст исключения клиенту не отдается
+            assertThat(status.getMessage()).doesNotContain("connection reset");
+        }
+        verify(collectionVersionService, never()).journalChanged();
+    }
+
+    @Test
+    void transientErrorIsRetried() {
+        service = service(100, Duration.ofSeconds(5));
+        when(crimeJournalRepository.saveAll(anyList()))
+                .thenThrow(new CannotAcquireLockException("lock timeout"))
+                .thenAnswer(invocation -> applied(invocation.getArgument(0)));
+        service.start();
+        UUID id = service.enqueue(request("Кража велосипеда")).getId();
+
+        service.stop();
+
+        assertThat(service.getStatus(id).getStatus()).isEqualTo(IngestStatus.PERSISTED);
+        verify(crimeJournalRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    void exhaustedTransientRetriesFailWholeBatchWithoutSplitting() throws InterruptedException {
+        service = service(100, Duration.ofSeconds(5));
+        List<CrimeJournal> batch = List.of(journal("Кража велосипеда"), journal("Кража самоката"), journal("Кража кошелька"));
+        when(crimeJournalRepository.saveAll(anyList())).thenThrow(new CannotAcquireLockException("connection refused"));
+
+        service.write(batch);
+
+        verify(crimeJournalRepository, times(3)).saveAll(anyList());
+        for (CrimeJournal crimeJournal : batch) {
+            assertThat(service.getStatus(crimeJournal.getId()).getStatus()).isEqualTo(IngestStatus.FAILED);
+        }
+    }
+
+    @Test
+    void batchIsSplitUntilOnlyFailingRowFails() throws InterruptedException {
+        service = service(100, Duration.ofSeconds(5));
+        List<CrimeJournal> batch = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            batch.add(journal("Запись " + i));
+        }
+        UUID broken = batch.get(3).getId();
+        when(crimeJournalRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<CrimeJournal> journals = invocation.getArgument(0);
+            if (journals.stream().anyMatch(it -> it.getId().equals(broken))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(100)");
+            }
+            return applied(journals);
+        });
+
+        service.write(batch);
+
+        for (CrimeJournal crimeJournal : batch) {
+            IngestStatus expected = crimeJournal.getId().equals(broken) ? IngestStatus.FAILED : IngestStatus.PERSISTED;
+            assertThat(service.getStatus(crimeJournal.getId()).getStatus()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void successNoInfoAndDuplicatesAreReportedLikeSynchronousBatch() throws InterruptedException {
+        service = service(100, Duration.ofSeconds(5));
+        CrimeJournal applied = journal("Кража велосипеда");
+        CrimeJournal duplicate = journal("Кража самоката");
+        when(crimeJournalRepository.saveAll(anyList())).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 0});
+
+        service.write(List.of(applied, duplicate));
+
+        assertThat(service.getStatus(applied.getId()).getStatus()).isEqualTo(IngestStatus.PERSISTED);
+        assertThat(service.getStatus(duplicate.getId()).getStatus()).isEqualTo(IngestStatus.REJECTED);
+    }
+
+    @Test
+    void entriesLeftInQueueOnShutdownAreCountedAsDropped() throws InterruptedException {
+        service = service(1, Duration.ofMillis(100));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindTo(registry);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(crimeJournalRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return applied(invocation.getArgument(0));
+        });
+        service.start();
+        service.enqueue(request("Запись 0"));
+        writing.await();
+        UUID first = service.enqueue(request("Запись 1")).getId();
+        UUID second = service.enqueue(request("Запись 2")).getId();
+
+        service.stop();
+        release.countDown();
+
+        assertThat(registry.get("crime.journal.ingest.dropped").functionCounter().count()).isEqualTo(2);
+        assertThat(service.getStatus(first).getStatus()).isEqualTo(IngestStatus.FAILED);
+        assertThat(service.getStatus(second).getStatus()).isEqualTo(IngestStatus.FAILED);
+    }
+
+    private CrimeJournalIngestService service(int batchSize, Duration shutdownTimeout) {
+        IdGenerator idGenerator = mock(IdGenerator.class);
+        when(idGenerator.nextId()).thenAnswer(invocation -> UUID.randomUUID());
+        return new CrimeJournalIngestService(crimeJournalRepository, profileRepository, collectionVersionService,
+                idGenerator, transactionManager, 100, batchSize, Duration.ofMinutes(1),
+                3, Duration.ofMillis(1), shutdownTimeout);
+    }
+
+    private static int[] applied(List<CrimeJournal> journals) {
+        int[] counts = new int[journals.size()];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+
+    private CrimeJournal journal(String description) {
+        return new CrimeJournal(UUID.randomUUID(), description, date(LocalDate.of(2023, 1, 10)), false, profileId);
+    }
+
+    private CreateCrimeJournalRequest request(String description) {
+        return CreateCrimeJournalRequest.builder()
+                .description(description)
+                .dateCrime(date(LocalDate.of(2023, 1, 10)))
+                .isClosed(false)
+                .profileId(profileId)
+                .build();
+    }
+
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+}
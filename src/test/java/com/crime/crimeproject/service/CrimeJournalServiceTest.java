@@ -0,0 +1,309 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.cache.CrimeJournalCache;
+import com.crime.crimeproject.dto.BatchItemResultDTO;
+import com.crime.crimeproject.dto.BatchItemStatus;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.dto.PageDTO;
+import com.crime.crimeproject.exception.NotFoundException;
+import com.crime.crimeproject.exception.ValidationException;
+import com.crime.crimeproject.id.IdGenerator;
+import com.crime.crimeproject.pagination.JournalCursor;
+import com.crime.crimeproject.repository.CrimeJournalRepository;
+import com.crime.crimeproject.repository.ProfileRepository;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.request.CreateCrimeJournalRequest;
+import com.crime.crimeproject.request.CrimeJournalFilter;
+import com.crime.crimeproject.request.SortDirection;
+import com.crime.crimeproject.request.UpdateCrimeJournalRequest;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.hibernate.validator.messageinterpolation.ParameterMessageInterpolator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CrimeJournalServiceTest {
+
+    private static final ValidatorFactory VALIDATOR_FACTORY = Validation.byDefaultProvider()
+            .configure()
+            .messageInterpolator(new ParameterMessageInterpolator())
+            .buildValidatorFactory();
+
+    private CrimeJournalRepository crimeJournalRepository;
+    private ProfileRepository profileRepository;
+    private CollectionVersionService collectionVersionService;
+    private IdGenerator idGenerator;
+    private CrimeJournalService service;
+
+    @BeforeEach
+    void setUp() {
+        crimeJournalRepository = mock(CrimeJournalRepository.class);
+        profileRepository = mock(ProfileRepository.class);
+        collectionVersionService = mock(CollectionVersionService.class);
+        idGenerator = mock(IdGenerator.class);
+        when(idGenerator.nextId()).thenAnswer(invocation -> UUID.randomUUID());
+        Validator validator = VALIDATOR_FACTORY.getValidator();
+        service = new CrimeJournalService(crimeJournalRepository, profileRepository, validator,
+                mock(CrimeJournalCache.class), collectionVersionService, idGenerator);
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        VALIDATOR_FACTORY.close();
+    }
+
+    @Test
+    void pageRequestsOneExtraRowAndPointsCursorAtLastReturnedRow() {
+        List<CrimeJournalDTO> rows = journals(4);
+        when(crimeJournalRepository.findPage(any(), isNull(), eq(4), eq(SortDirection.DESC))).thenReturn(rows);
+
+        PageDTO<CrimeJournalDTO> page = service.getPage(CrimeJournalFilter.builder().build(), null, 3, SortDirection.DESC);
+
+        assertThat(page.getItems()).containsExactlyElementsOf(rows.subList(0, 3));
+        CrimeJournalDTO last = rows.get(2);
+        assertThat(JournalCursor.decode(page.getNextCursor()))
+                .isEqualTo(JournalCursor.of(last.getDateCrime(), last.getId()));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        when(crimeJournalRepository.findPage(any(), isNull(), eq(4), eq(SortDirection.ASC))).thenReturn(journals(3));
+
+        PageDTO<CrimeJournalDTO> page = service.getPage(CrimeJournalFilter.builder().build(), null, 3, SortDirection.ASC);
+
+        assertThat(page.getItems()).hasSize(3);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorIsPassedToRepositoryAsKeysetPosition() {
+        JournalCursor cursor = new JournalCursor(LocalDate.of(2022, 5, 1), UUID.randomUUID());
+        when(crimeJournalRepository.findPage(any(), eq(cursor), eq(11), eq(SortDirection.DESC))).thenReturn(List.of());
+
+        PageDTO<CrimeJournalDTO> page = service.getPage(CrimeJournalFilter.builder().build(), cursor.encode(), 10, SortDirection.DESC);
+
+        // Пустая страница после курсора — конец выборки, а не «не найдено»
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+        verify(crimeJournalRepository).findPage(any(), eq(cursor), eq(11), eq(SortDirection.DESC));
+    }
+
+    @Test
+    void emptyFirstPageIsNotFound() {
+        when(crimeJournalRepository.findPage(any(), isNull(), eq(51), eq(SortDirection.DESC))).thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.getPage(CrimeJournalFilter.builder().build(), null, 50, SortDirection.DESC))
+                .isInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void invalidPageParametersAreRejected() {
+        CrimeJournalFilter reversed = CrimeJournalFilter.builder()
+                .from(LocalDate.of(2020, 2, 1))
+                .to(LocalDate.of(2020, 1, 1))
+                .build();
+
+        assertThatThrownBy(() -> service.getPage(CrimeJournalFilter.builder().build(), null, 0, SortDirection.DESC))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.getPage(CrimeJournalFilter.builder().build(), null,
+                CrimeJournalService.MAX_PAGE_SIZE + 1, SortDirection.DESC))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.getPage(reversed, null, 10, SortDirection.DESC))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> service.getPage(CrimeJournalFilter.builder().build(), "garbage", 10, SortDirection.DESC))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createBatchReportsEveryItemAtItsRequestIndex() {
+        UUID profile = UUID.randomUUID();
+        UUID unknownProfile = UUID.randomUUID();
+        List<CreateCrimeJournalRequest> requests = Arrays.asList(
+                create("Кража велосипеда", profile),
+                create("abc", profile),              // короче 4 символов
+                create("Кража сумки", unknownProfile),
+                null,
+                create("Кража телефона", profile),   // дубликат существующей записи
+                create("Угон автомобиля", profile)); // драйвер не сообщил число строк
+        when(profileRepository.findExistingIds(anyCollection())).thenReturn(Set.of(profile));
+        when(crimeJournalRepository.saveAll(anyList())).thenReturn(new int[]{1, 0, Statement.SUCCESS_NO_INFO});
+
+        List<BatchItemResultDTO> results = service.createBatch(requests);
+
+        assertThat(results).extracting(BatchItemResultDTO::getIndex, BatchItemResultDTO::getStatus).containsExactly(
+                tuple(0, BatchItemStatus.CREATED),
+                tuple(1, BatchItemStatus.REJECTED),
+                tuple(2, BatchItemStatus.REJECTED),
+                tuple(3, BatchItemStatus.REJECTED),
+                tuple(4, BatchItemStatus.REJECTED),
+                tuple(5, BatchItemStatus.CREATED));
+        ArgumentCaptor<List<CrimeJournal>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(crimeJournalRepository).saveAll(inserted.capture());
+        assertThat(inserted.getValue()).extracting(CrimeJournal::getDescription)
+                .containsExactly("Кража велосипеда", "Кража телефона", "Угон автомобиля");
+        // ID созданных записей — те, что ушли во вставку, у отклоненных ID нет
+        assertThat(results.get(0).getId()).isEqualTo(inserted.getValue().get(0).getId());
+        assertThat(results.get(5).getId()).isEqualTo(inserted.getValue().get(2).getId());
+        assertThat(results.get(4).getId()).isNull();
+        assertThat(results.get(2).getMessage()).contains(unknownProfile.toString());
+        verify(collectionVersionService).journalChanged();
+    }
+
+    @Test
+    void createBatchOfDuplicatesDoesNotChangeCollectionVersion() {
+        UUID profile = UUID.randomUUID();
+        when(profileRepository.findExistingIds(anyCollection())).thenReturn(Set.of(profile));
+        when(crimeJournalRepository.saveAll(anyList())).thenReturn(new int[]{0, 0});
+
+        List<BatchItemResultDTO> results = service.createBatch(List.of(create("Кража велосипеда", profile), create("Кража сумки", profile)));
+
+        assertThat(results).extracting(BatchItemResultDTO::getStatus).containsOnly(BatchItemStatus.REJECTED);
+        verify(collectionVersionService, never()).journalChanged();
+    }
+
+    @Test
+    void updateBatchReportsEveryItemAtItsRequestIndex() {
+        UUID profile = UUID.randomUUID();
+        UUID existing = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID deletedMeanwhile = UUID.randomUUID();
+        List<UpdateCrimeJournalRequest> requests = List.of(
+                update(existing, profile),
+                update(missing, profile),
+                update(existing, profile),           // повтор ID в пакете
+                update(deletedMeanwhile, profile));  // удалена между проверкой и обновлением
+        when(crimeJournalRepository.findExistingIds(anyCollection())).thenReturn(Set.of(existing, deletedMeanwhile));
+        when(profileRepository.findExistingIds(anyCollection())).thenReturn(Set.of(profile));
+        when(crimeJournalRepository.updateAll(anyList())).thenReturn(new int[]{Statement.SUCCESS_NO_INFO, 0});
+
+        List<BatchItemResultDTO> results = service.updateBatch(requests);
+
+        assertThat(results).extracting(BatchItemResultDTO::getIndex, BatchItemResultDTO::getId, BatchItemResultDTO::getStatus)
+                .containsExactly(
+                        tuple(0, existing, BatchItemStatus.UPDATED),
+                        tuple(1, missing, BatchItemStatus.NOT_FOUND),
+                        tuple(2, existing, BatchItemStatus.REJECTED),
+                        tuple(3, deletedMeanwhile, BatchItemStatus.NOT_FOUND));
+        verify(collectionVersionService).journalChanged();
+    }
+
+    @Test
+    void deleteBatchReportsEachIdOnce() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(crimeJournalRepository.deleteAllByIds(anyCollection())).thenReturn(Set.of(first));
+
+        List<BatchItemResultDTO> results = service.deleteBatch(Arrays.asList(first, null, first, second));
+
+        assertThat(results).extracting(BatchItemResultDTO::getIndex, BatchItemResultDTO::getStatus).containsExactly(
+                tuple(0, BatchItemStatus.DELETED),
+                tuple(1, BatchItemStatus.REJECTED),
+                tuple(2, BatchItemStatus.NOT_FOUND),
+                tuple(3, BatchItemStatus.NOT_FOUND));
+        verify(collectionVersionService).journalChanged();
+    }
+
+    @Test
+    void deleteBatchOfMissingIdsDoesNotChangeCollectionVersion() {
+        when(crimeJournalRepository.deleteAllByIds(anyCollection())).thenReturn(Set.of());
+
+        List<BatchItemResultDTO> results = service.deleteBatch(List.of(UUID.randomUUID()));
+
+        assertThat(results).extracting(BatchItemResultDTO::getStatus).containsExactly(BatchItemStatus.NOT_FOUND);
+        verify(collectionVersionService, never()).journalChanged();
+    }
+
+    @Test
+    void deletingNothingByProfileDoesNotChangeCollectionVersion() {
+        UUID profile = UUID.randomUUID();
+        when(profileRepository.existsById(profile)).thenReturn(true);
+        when(crimeJournalRepository.deleteByProfileId(profile)).thenReturn(0);
+
+        assertThatThrownBy(() -> service.deleteAllByProfileId(profile)).isInstanceOf(NotFoundException.class);
+        verify(collectionVersionService, never()).journalChanged();
+    }
+
+    @Test
+    void profileDeletedAfterExistenceCheckIsValidationError() {
+        UUID profile = UUID.randomUUID();
+        // existsById ответил из кэша этого экземпляра, а профиль уже удален через другой
+        when(profileRepository.existsById(profile)).thenReturn(true);
+        when(crimeJournalRepository.save(any())).thenThrow(new DataIntegrityViolationException("FK_crime_journal_profileId",
+                new PSQLException("insert or update violates foreign key constraint", PSQLState.FOREIGN_KEY_VIOLATION)));
+
+        assertThatThrownBy(() -> service.create(create("Кража велосипеда", profile)))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining(profile.toString());
+        verify(collectionVersionService, never()).journalChanged();
+    }
+
+    private static CreateCrimeJournalRequest create(String description, UUID profileId) {
+        return CreateCrimeJournalRequest.builder()
+                .description(description)
+                .dateCrime(date(LocalDate.of(2023, 1, 10)))
+                .isClosed(false)
+                .profileId(profileId)
+                .build();
+    }
+
+    private static UpdateCrimeJournalRequest update(UUID id, UUID profileId) {
+        return UpdateCrimeJournalRequest.builder()
+                .id(id)
+                .description("Кража со взломом")
+                .dateCrime(date(LocalDate.of(2023, 1, 10)))
+                .isClosed(true)
+                .profileId(profileId)
+                .build();
+    }
+
+    // Запрос приходит из JSON как java.util.Date (java.sql.Date не поддерживает toInstant, на нем падает @DateRange)
+    private static Date date(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    // Записи в порядке DESC по (date_crime, id), как их вернул бы репозиторий
+    private static List<CrimeJournalDTO> journals(int count) {
+        List<CrimeJournalDTO> journals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            journals.add(CrimeJournalDTO.builder()
+                    .id(UUID.randomUUID())
+                    .description("Кража " + i)
+                    .dateCrime(java.sql.Date.valueOf(LocalDate.of(2023, 6, 30).minusDays(i)))
+                    .isClosed(false)
+                    .profile_id(UUID.randomUUID())
+                    .build());
+        }
+        return journals;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.crime.crimeproject.service;
+
+import com.crime.crimeproject.controller.CrimeJournalController;
+import com.crime.crimeproject.dto.ChangeOperation;
+import com.crime.crimeproject.entity.CrimeJournal;
+import com.crime.crimeproject.entity.CrimeJournalChange;
+import com.crime.crimeproject.pagination.ChangeFeedCursor;
+import com.crime.crimeproject.repository.ProfileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class CrimeJournalStreamServiceTest {
+
+    private final UUID profileId = UUID.randomUUID();
+    private final ChangeFeedCursor latest = new ChangeFeedCursor(200, 9);
+
+    private CrimeJournalChangeFeedService feed;
+    private CrimeJournalStreamService service;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        feed = mock(CrimeJournalChangeFeedService.class);
+        when(feed.latestPosition()).thenReturn(latest);
+        when(feed.awaitChanges(any(), anyInt(), any())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            return List.of();
+        });
+        ProfileRepository profileRepository = mock(ProfileRepository.class);
+        when(profileRepository.existsById(profileId)).thenReturn(true);
+        service = new CrimeJournalStreamService(feed, profileRepository, 10, 4, 2, Duration.ofSeconds(15), Duration.ofMinutes(1));
+        service.start();
+        mockMvc = MockMvcBuilders.standaloneSetup(new CrimeJournalController(mock(CrimeJournalService.class),
+                mock(CrimeJournalExportService.class), mock(CollectionVersionService.class), mock(CrimeJournalStatsService.class),
+                mock(CrimeJournalIngestService.class), feed, service)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void reconnectReceivesMissedChangesWithFeedPositionsAsIds() throws Exception {
+        ChangeFeedCursor lastEvent = new ChangeFeedCursor(100, 1);
+        when(feed.isRetained(lastEvent)).thenReturn(true);
+        when(feed.findProfileChanges(eq(lastEvent), eq(profileId), eq(5)))
+                .thenReturn(List.of(change(100, 2), change(101, 3)));
+
+        MockHttpServletResponse response = subscribe(lastEvent.encode());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> body(response).contains(new ChangeFeedCursor(101, 3).encode()));
+        assertThat(body(response))
+                .doesNotContain("resync")
+                .containsSubsequence("id:" + new ChangeFeedCursor(100, 2).encode() + "\nevent:journal",
+                        "id:" + new ChangeFeedCursor(101, 3).encode() + "\nevent:journal");
+        // Поток чтения начинает с позиции, взятой до чтения пропущенного, а не с Last-Event-ID
+        verify(feed, timeout(2000).atLeastOnce()).awaitChanges(eq(latest), anyInt(), any());
+        verify(feed, never()).awaitChanges(eq(lastEvent), anyInt(), any());
+    }
+
+    @Test
+    void reconnectAfterPurgedPositionStartsWithResync() throws Exception {
+        ChangeFeedCursor lastEvent = new ChangeFeedCursor(100, 1);
+        when(feed.isRetained(lastEvent)).thenReturn(false);
+
+        MockHttpServletResponse response = subscribe(lastEvent.encode());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> body(response).contains("resync"));
+        assertThat(body(response)).startsWith("id:" + latest.encode() + "\nevent:resync");
+        verify(feed, never()).findProfileChanges(any(), any(), anyInt());
+    }
+
+    @Test
+    void tooManyMissedChangesAreReplacedByResync() throws Exception {
+        ChangeFeedCursor lastEvent = new ChangeFeedCursor(100, 1);
+        when(feed.isRetained(lastEvent)).thenReturn(true);
+        when(feed.findProfileChanges(eq(lastEvent), eq(profileId), eq(5)))
+                .thenReturn(List.of(change(100, 2), change(100, 3), change(100, 4), change(100, 5), change(100, 6)));
+
+        MockHttpServletResponse response = subscribe(lastEvent.encode());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> body(response).contains("resync"));
+        assertThat(body(response)).startsWith("id:" + latest.encode() + "\nevent:resync").doesNotContain("event:journal");
+    }
+
+    @Test
+    void lastEventIdOfOldFormatStartsWithResync() throws Exception {
+        MockHttpServletResponse response = subscribe("42");
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> body(response).contains("resync"));
+        assertThat(body(response)).startsWith("id:" + latest.encode() + "\nevent:resync");
+    }
+
+    private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(get("/journal/user/{profileId}/stream", profileId).header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static String body(MockHttpServletResponse response) throws Exception {
+        return response.getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private CrimeJournalChange change(long txid, long seq) {
+        CrimeJournal journal = new CrimeJournal(UUID.randomUUID(), "Кража велосипеда", new Date(), false, profileId);
+        return new CrimeJournalChange(seq, txid, ChangeOperation.UPDATE, Instant.now(), journal, null);
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.crime.crimeproject.service;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DuplicateKeyException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfileServiceTest {
+
+    @Test
+    void duplicateMessageUsesConstraintNameFromServer() {
+        assertThat(ProfileService.duplicateMessage(duplicate("uq_profile_login")))
+                .isEqualTo("Профиль с таким логином уже существует");
+        assertThat(ProfileService.duplicateMessage(duplicate("uq_profile_email")))
+                .isEqualTo("Профиль с такой электронной почтой уже существует");
+    }
+
+    @Test
+    void duplicateMessageIgnoresLocalizedText() {
+        // Текст ошибки упоминает ограничение, но сервер его не сообщил
+        DuplicateKeyException e = new DuplicateKeyException("insert",
+                new PSQLException(new ServerErrorMessage("SERROR\0C23505\0Mнарушает ограничение uq_profile_login\0")));
+
+        assertThat(ProfileService.duplicateMessage(e)).isEqualTo("Профиль с такими данными уже существует");
+    }
+
+    private static DuplicateKeyException duplicate(String constraint) {
+        ServerErrorMessage message = new ServerErrorMessage(
+                "SERROR\0C23505\0Mповторяющееся значение ключа нарушает ограничение уникальности\0n" + constraint + "\0");
+        return new DuplicateKeyException("insert", new PSQLException(message));
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.crime.crimeproject.web;
+
+import com.crime.crimeproject.controller.CrimeJournalController;
+import com.crime.crimeproject.dto.CrimeJournalDTO;
+import com.crime.crimeproject.dto.PageDTO;
+import com.crime.crimeproject.request.SortDirection;
+import com.crime.crimeproject.service.CollectionVersionService;
+import com.crime.crimeproject.service.CrimeJournalChangeFeedService;
+import com.crime.crimeproject.service.CrimeJournalExportService;
+import com.crime.crimeproject.service.CrimeJournalIngestService;
+import com.crime.crimeproject.service.CrimeJournalService;
+import com.crime.crimeproject.service.CrimeJournalStatsService;
+import com.crime.crimeproject.service.CrimeJournalStreamService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Выбор формата ответа по Accept: JSON по умолчанию, Smile и CBOR — по запросу, с теми же настройками Jackson
+class BinaryFormatConfigTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    private final CrimeJournalDTO journal = journal(1);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // Построитель — prototype, как у Spring Boot; настройка дат видна и в JSON, и в бинарных форматах
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("jacksonObjectMapperBuilder", BeanDefinitionBuilder
+                .genericBeanDefinition(Jackson2ObjectMapperBuilder.class,
+                        () -> Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))
+                .setScope(DefaultListableBeanFactory.SCOPE_PROTOTYPE)
+                .getBeanDefinition());
+        List<HttpMessageConverter<?>> converters = new ArrayList<>();
+        converters.add(new MappingJackson2HttpMessageConverter(beanFactory.getBean(Jackson2ObjectMapperBuilder.class).build()));
+        new BinaryFormatConfig(beanFactory.getBeanProvider(Jackson2ObjectMapperBuilder.class)).extendMessageConverters(converters);
+
+        CrimeJournalService crimeJournalService = mock(CrimeJournalService.class);
+        when(crimeJournalService.findById(journal.getId())).thenReturn(journal);
+        when(crimeJournalService.getPage(any(), isNull(), anyInt(), eq(SortDirection.DESC))).thenReturn(PageDTO.<CrimeJournalDTO>builder()
+                .items(IntStream.rangeClosed(1, 50).mapToObj(BinaryFormatConfigTest::journal).toList())
+                .build());
+        mockMvc = MockMvcBuilders.standaloneSetup(new CrimeJournalController(crimeJournalService,
+                        mock(CrimeJournalExportService.class), mock(CollectionVersionService.class), mock(CrimeJournalStatsService.class),
+                        mock(CrimeJournalIngestService.class), mock(CrimeJournalChangeFeedService.class),
+                        mock(CrimeJournalStreamService.class)))
+                .setMessageConverters(converters.toArray(HttpMessageConverter[]::new))
+                .build();
+    }
+
+    @Test
+    void withoutAcceptOrWithWildcardAnswersJson() throws Exception {
+        mockMvc.perform(get("/journal/{id}", journal.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        mockMvc.perform(get("/journal/{id}", journal.getId()).header(HttpHeaders.ACCEPT, "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void smileCarriesSameFieldsWithBinaryUuids() throws Exception {
+        JsonNode json = new ObjectMapper().readTree(body(MediaType.APPLICATION_JSON));
+        byte[] smile = body(SMILE);
+
+        assertThat(new String(smile, 0, 3, StandardCharsets.ISO_8859_1)).isEqualTo(":)\n");
+        assertSameJournal(new SmileMapper().readTree(smile), json);
+    }
+
+    @Test
+    void cborCarriesSameFieldsWithBinaryUuids() throws Exception {
+        JsonNode json = new ObjectMapper().readTree(body(MediaType.APPLICATION_JSON));
+
+        assertSameJournal(new CBORMapper().readTree(body(MediaType.parseMediaType("application/cbor"))), json);
+    }
+
+    @Test
+    void binaryPagesAreSmallerThanJson() throws Exception {
+        int json = page(MediaType.APPLICATION_JSON).length;
+
+        assertThat(page(SMILE).length).isLessThan(json);
+        assertThat(page(MediaType.parseMediaType("application/cbor")).length).isLessThan(json);
+    }
+
+    private void assertSameJournal(JsonNode binary, JsonNode json) throws Exception {
+        assertThat(binary.get("id").binaryValue()).isEqualTo(bytes(journal.getId()));
+        assertThat(binary.get("profile_id").binaryValue()).isEqualTo(bytes(journal.getProfile_id()));
+        assertThat(binary.get("description")).isEqualTo(json.get("description"));
+        assertThat(binary.get("dateCrime")).isEqualTo(json.get("dateCrime"));
+        assertThat(binary.get("dateCrime").isTextual()).isTrue();
+        assertThat(binary.get("isClosed")).isEqualTo(json.get("isClosed"));
+    }
+
+    private byte[] body(MediaType accept) throws Exception {
+        return mockMvc.perform(get("/journal/{id}", journal.getId()).accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private byte[] page(MediaType accept) throws Exception {
+        return mockMvc.perform(get("/journal").accept(accept))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(accept))
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    private static CrimeJournalDTO journal(int n) {
+        return CrimeJournalDTO.builder()
+                .id(UUID.randomUUID())
+                .description("Кража №" + n)
+                .dateCrime(new Date(1672531200000L + n * 86_400_000L))
+                .isClosed(n % 2 == 0)
+                .profile_id(UUID.randomUUID())
+                .build();
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.crime.crimeproject.web;
+
+import com.crime.crimeproject.datasource.ReadConsistency;
+import com.crime.crimeproject.datasource.ReplicaLagMonitor;
+import com.crime.crimeproject.repository.CollectionVersionRepository;
+import com.crime.crimeproject.service.CollectionVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Маршрут чтения решается один раз на запрос, и ETag выдается по тому же маршруту
+class ConsistencyTokenAdviceTest {
+
+    private final ReplicaLagMonitor replicaLagMonitor = mock(ReplicaLagMonitor.class);
+    private final ConsistencyTokenAdvice advice = new ConsistencyTokenAdvice(replicaLagMonitor);
+    private final CollectionVersionRepository collectionVersionRepository = mock(CollectionVersionRepository.class);
+    private final CollectionVersionService collectionVersionService = new CollectionVersionService(collectionVersionRepository);
+
+    @BeforeEach
+    void setUp() {
+        // Версия журнала в основной БД — 2, профилей — 1
+        when(collectionVersionRepository.findVersions()).thenReturn(Map.of(CollectionVersionService.JOURNAL, 2L,
+                CollectionVersionService.PROFILE, 1L));
+        collectionVersionService.listenerConnected();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadConsistency.clear();
+    }
+
+    @Test
+    void replicaRouteGivesETagOfVersionVisibleOnReplica() {
+        when(replicaLagMonitor.replicaRoute()).thenReturn(ReadConsistency.Route.replica(1, 1));
+
+        advice.preHandle(new MockHttpServletRequest("GET", "/journal"), new MockHttpServletResponse(), null);
+        // Реплика отстала уже после решения: запрос все равно читает с нее и ETag по ее версии
+        when(replicaLagMonitor.replicaRoute()).thenReturn(null);
+
+        assertThat(ReadConsistency.current()).isEqualTo(ReadConsistency.Route.replica(1, 1));
+        assertThat(collectionVersionService.journalETag()).endsWith("-1\"");
+    }
+
+    @Test
+    void unreplayedTokenRoutesToPrimaryWithCurrentETag() {
+        when(replicaLagMonitor.replicaRoute()).thenReturn(ReadConsistency.Route.replica(1, 1));
+        when(replicaLagMonitor.hasReplayed(100)).thenReturn(false);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/journal");
+        request.addHeader(ConsistencyTokenAdvice.HEADER, "100");
+
+        advice.preHandle(request, new MockHttpServletResponse(), null);
+
+        assertThat(ReadConsistency.current()).isEqualTo(ReadConsistency.PRIMARY);
+        assertThat(collectionVersionService.journalETag()).endsWith("-2\"");
+    }
+
+    @Test
+    void unavailableReplicaRoutesToPrimary() {
+        when(replicaLagMonitor.replicaRoute()).thenReturn(null);
+
+        advice.preHandle(new MockHttpServletRequest("GET", "/journal"), new MockHttpServletResponse(), null);
+
+        assertThat(ReadConsistency.current()).isEqualTo(ReadConsistency.PRIMARY);
+        assertThat(collectionVersionService.profileETag()).endsWith("-1\"");
+        assertThat(collectionVersionService.journalETag()).endsWith("-2\"");
+    }
+
+}